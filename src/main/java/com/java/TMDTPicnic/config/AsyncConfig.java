@@ -0,0 +1,75 @@
+package com.java.TMDTPicnic.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Thread pool xử lý phần việc nặng sau khi VNPay callback thành công,
+     * để gateway nhận phản hồi ngay mà không phải chờ
+     */
+    @Bean(name = "paymentCallbackExecutor")
+    public ThreadPoolTaskExecutor paymentCallbackExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("vnpay-callback-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Thread pool chạy các handler sự kiện đơn hàng (outbox).
+     * Hàng đợi đầy thì thread của dispatcher tự chạy handler, không bỏ sự kiện
+     */
+    @Bean(name = "orderEventExecutor")
+    public ThreadPoolTaskExecutor orderEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("order-event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Thread pool vẽ hóa đơn PDF hàng loạt (tốn CPU nên số thread = số core).
+     * Hàng đợi đầy thì thread gọi tự vẽ, không nhận thêm việc vô hạn
+     */
+    @Bean(name = "invoiceExecutor")
+    public ThreadPoolTaskExecutor invoiceExecutor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cores);
+        executor.setMaxPoolSize(cores);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("invoice-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Virtual thread cho các truy vấn con của dashboard overview: việc chủ yếu là chờ DB nên không cần pool,
+     * số truy vấn chạy cùng lúc do semaphore trong DashboardOverviewService giới hạn
+     */
+    @Bean(name = "dashboardExecutor", destroyMethod = "close")
+    public ExecutorService dashboardExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dashboard-", 0).factory());
+    }
+}
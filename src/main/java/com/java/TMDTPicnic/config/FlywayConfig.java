@@ -0,0 +1,30 @@
+package com.java.TMDTPicnic.config;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+
+@Configuration
+public class FlywayConfig {
+
+    /**
+     * Bảng vẫn do Hibernate (ddl-auto: update) tạo, nên không migrate trước khi JPA khởi động
+     * như mặc định của Spring Boot - lúc đó DB mới chưa có bảng để tạo index
+     */
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy() {
+        return flyway -> { };
+    }
+
+    /**
+     * Chạy migration ngay sau khi EntityManagerFactory đã cập nhật schema
+     */
+    @Bean
+    @DependsOn("entityManagerFactory")
+    public InitializingBean flywayMigrateAfterJpa(Flyway flyway) {
+        return flyway::migrate;
+    }
+}
@@ -35,6 +35,7 @@ public class SecurityConfig {
             "/v3/api-docs/**",
             "/swagger-ui/**",
             "/swagger-ui.html",
+            "/actuator/health",
 //            "/api/cart/**" // TẤT CẢ method (GET/POST/PUT/DELETE) với /api/cart/** đều PUBLIC
             "/api/shared-carts",
             "/api/addresses",
@@ -57,7 +58,9 @@ public class SecurityConfig {
             "/api/users/**",
             "/api/dashboard/**",
             "/api/group-buy/campaigns/**",
-            "/api/coupons/create"
+            "/api/coupons/create",
+            "/api/flash-sale/**",
+            "/api/invoices/bulk"
     };
     private static final String[] AUTH_REQUIRED_ENDPOINTS = {
             "/api/addresses/**",
@@ -80,6 +83,9 @@ public class SecurityConfig {
                         // GET không cần login
                         .requestMatchers(HttpMethod.GET, PUBLIC_GET_ENDPOINTS).permitAll()
 
+                        // Metrics Prometheus: chỉ ADMIN (scraper dùng token admin)
+                        .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
+
                         // Admin được phép POST/PUT/DELETE
                         .requestMatchers(HttpMethod.POST, ADMIN_ENDPOINTS).hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, ADMIN_ENDPOINTS).hasRole("ADMIN")
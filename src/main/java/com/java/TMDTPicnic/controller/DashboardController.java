@@ -2,7 +2,12 @@ package com.java.TMDTPicnic.controller;
 
 import com.java.TMDTPicnic.dto.request.DashboardRequest;
 import com.java.TMDTPicnic.dto.response.*;
+import com.java.TMDTPicnic.service.DashboardAlertsService;
+import com.java.TMDTPicnic.service.DashboardKpiService;
+import com.java.TMDTPicnic.service.DashboardOverviewService;
+import com.java.TMDTPicnic.enums.TrendingWindow;
 import com.java.TMDTPicnic.service.DashboardService;
+import com.java.TMDTPicnic.service.TrendingProducts;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +25,10 @@ import java.util.List;
 public class DashboardController {
 
     private final DashboardService dashboardService;
+    private final DashboardKpiService dashboardKpiService;
+    private final DashboardOverviewService dashboardOverviewService;
+    private final DashboardAlertsService dashboardAlertsService;
+    private final TrendingProducts trendingProducts;
 
     // ==================== FULL DASHBOARD ====================
     @PostMapping("/1-bieu-do-tron-Order-Summary")
@@ -47,6 +56,32 @@ public class DashboardController {
         );
     }
 
+    // ==================== OVERVIEW ====================
+    @PostMapping("/overview")
+    @Operation(summary = "ROLE-ADMIN Lấy toàn bộ dashboard (tóm tắt đơn, doanh thu, đơn, user, top danh mục, top sản phẩm) trong một lần gọi")
+    public ResponseEntity<ApiResponse<DashboardOverviewResponse>> getOverview(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<DashboardOverviewResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        DashboardOverviewResponse data = dashboardOverviewService.getOverview(request);
+        return ResponseEntity.ok(
+                ApiResponse.<DashboardOverviewResponse>builder()
+                        .message("Lấy dashboard từ " + request.getFromDate() + " đến " + request.getToDate() + " thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
     // ==================== REVENUE ====================
     @PostMapping("/2-bieu-do-cot-revenue-chart")
     @Operation(summary = "ROLE-ADMIN Lấy biểu đồ doanh thu")
@@ -174,5 +209,209 @@ public class DashboardController {
                         .build()
         );
     }
-}
 
+    // ==================== KPI ====================
+    @PostMapping("/7-kpi")
+    @Operation(summary = "ROLE-ADMIN Lấy các chỉ số KPI (doanh thu, đơn, user, sản phẩm, mã giảm giá, giỏ chung, mua chung)")
+    public ResponseEntity<ApiResponse<DashboardKpiResponse>> getKpis(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<DashboardKpiResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        DashboardKpiResponse data = dashboardKpiService.getKpis(request.getFromDate(), request.getToDate());
+        return ResponseEntity.ok(
+                ApiResponse.<DashboardKpiResponse>builder()
+                        .message("Lấy KPI từ " + request.getFromDate() + " đến " + request.getToDate() + " thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
+    // ==================== WEEK / MONTH ====================
+    @PostMapping("/8-bieu-do-cot-revenue-by-week")
+    @Operation(summary = "ROLE-ADMIN Lấy biểu đồ doanh thu theo tuần (ISO)")
+    public ResponseEntity<ApiResponse<List<RevenueByWeekResponse>>> getRevenueByWeek(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<List<RevenueByWeekResponse>>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        List<RevenueByWeekResponse> data = dashboardService.getRevenueByWeek(request);
+        return ResponseEntity.ok(
+                ApiResponse.<List<RevenueByWeekResponse>>builder()
+                        .message("Lấy dữ liệu doanh thu theo tuần thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
+    @PostMapping("/9-bieu-do-cot-revenue-by-month")
+    @Operation(summary = "ROLE-ADMIN Lấy biểu đồ doanh thu theo tháng")
+    public ResponseEntity<ApiResponse<List<RevenueByMonthResponse>>> getRevenueByMonth(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<List<RevenueByMonthResponse>>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        List<RevenueByMonthResponse> data = dashboardService.getRevenueByMonth(request);
+        return ResponseEntity.ok(
+                ApiResponse.<List<RevenueByMonthResponse>>builder()
+                        .message("Lấy dữ liệu doanh thu theo tháng thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
+    @PostMapping("/10-bieu-do-cot-orders-by-week")
+    @Operation(summary = "ROLE-ADMIN Lấy biểu đồ đơn hàng theo tuần (ISO)")
+    public ResponseEntity<ApiResponse<List<OrdersByWeekResponse>>> getOrdersByWeek(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<List<OrdersByWeekResponse>>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        List<OrdersByWeekResponse> data = dashboardService.getOrdersByWeek(request);
+        return ResponseEntity.ok(
+                ApiResponse.<List<OrdersByWeekResponse>>builder()
+                        .message("Lấy dữ liệu đơn hàng theo tuần thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
+    @PostMapping("/11-bieu-do-cot-orders-by-month")
+    @Operation(summary = "ROLE-ADMIN Lấy biểu đồ đơn hàng theo tháng")
+    public ResponseEntity<ApiResponse<List<OrdersByMonthResponse>>> getOrdersByMonth(
+            @Valid @RequestBody DashboardRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<List<OrdersByMonthResponse>>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        List<OrdersByMonthResponse> data = dashboardService.getOrdersByMonth(request);
+        return ResponseEntity.ok(
+                ApiResponse.<List<OrdersByMonthResponse>>builder()
+                        .message("Lấy dữ liệu đơn hàng theo tháng thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+
+    // ==================== ALERTS ====================
+    @GetMapping("/alerts")
+    @Operation(summary = "ROLE-ADMIN Lấy cảnh báo hiện tại (đơn quá hạn, sắp hết hàng, mua chung sắp kết thúc, giỏ chung sắp hết hạn)")
+    public ResponseEntity<ApiResponse<DashboardAlertsResponse>> getAlerts(@AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<DashboardAlertsResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        return ResponseEntity.ok(
+                ApiResponse.<DashboardAlertsResponse>builder()
+                        .message("Lấy cảnh báo thành công")
+                        .data(dashboardAlertsService.getAlerts())
+                        .build()
+        );
+    }
+
+    @GetMapping("/alerts/changes")
+    @Operation(summary = "ROLE-ADMIN Các cảnh báo thay đổi sau sinceVersion (bỏ trống để lấy tất cả và version hiện tại)")
+    public ResponseEntity<ApiResponse<DashboardAlertsDeltaResponse>> getAlertChanges(
+            @RequestParam(required = false) Long sinceVersion,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<DashboardAlertsDeltaResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        return ResponseEntity.ok(
+                ApiResponse.<DashboardAlertsDeltaResponse>builder()
+                        .message("Lấy thay đổi cảnh báo thành công")
+                        .data(dashboardAlertsService.getChanges(sinceVersion))
+                        .build()
+        );
+    }
+
+    // ==================== TRENDING ====================
+    @GetMapping("/trending")
+    @Operation(summary = "ROLE-ADMIN Sản phẩm và danh mục bán chạy trong 24h / 7d / 30d gần nhất")
+    public ResponseEntity<ApiResponse<TrendingResponse>> getTrending(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        // Kiểm tra quyền ADMIN
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<TrendingResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        TrendingWindow trendingWindow = TrendingWindow.fromCode(window);
+        TrendingResponse data = new TrendingResponse(
+                trendingWindow.getCode(),
+                trendingProducts.topProducts(trendingWindow, limit),
+                trendingProducts.topCategories(trendingWindow, limit));
+        return ResponseEntity.ok(
+                ApiResponse.<TrendingResponse>builder()
+                        .message("Lấy sản phẩm bán chạy " + trendingWindow.getCode() + " thành công")
+                        .data(data)
+                        .build()
+        );
+    }
+}
@@ -0,0 +1,87 @@
+package com.java.TMDTPicnic.controller;
+
+import com.java.TMDTPicnic.dto.response.ApiResponse;
+import com.java.TMDTPicnic.dto.response.FlashSaleProductResponse;
+import com.java.TMDTPicnic.service.FlashSaleGate;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/flash-sale")
+@RequiredArgsConstructor
+public class FlashSaleController {
+
+    private final FlashSaleGate flashSaleGate;
+
+    @PostMapping("/products/{productId}")
+    @Operation(summary = "ROLE-ADMIN Đánh dấu sản phẩm flash sale (nạp tồn kho vào bộ đếm)")
+    public ResponseEntity<ApiResponse<FlashSaleProductResponse>> enable(
+            @PathVariable Long productId,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        if (!isAdmin(jwt)) {
+            return forbidden();
+        }
+
+        FlashSaleProductResponse data = flashSaleGate.enable(productId);
+        return ResponseEntity.ok(
+                ApiResponse.<FlashSaleProductResponse>builder()
+                        .message("Đã bật flash sale cho sản phẩm " + productId)
+                        .data(data)
+                        .build()
+        );
+    }
+
+    @DeleteMapping("/products/{productId}")
+    @Operation(summary = "ROLE-ADMIN Bỏ sản phẩm khỏi flash sale")
+    public ResponseEntity<ApiResponse<Void>> disable(
+            @PathVariable Long productId,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        if (!isAdmin(jwt)) {
+            return forbidden();
+        }
+
+        flashSaleGate.disable(productId);
+        return ResponseEntity.ok(
+                ApiResponse.<Void>builder()
+                        .message("Đã tắt flash sale cho sản phẩm " + productId)
+                        .build()
+        );
+    }
+
+    @GetMapping("/products")
+    @Operation(summary = "ROLE-ADMIN Danh sách sản phẩm flash sale và số token còn lại")
+    public ResponseEntity<ApiResponse<List<FlashSaleProductResponse>>> list(@AuthenticationPrincipal Jwt jwt) {
+        if (!isAdmin(jwt)) {
+            return forbidden();
+        }
+
+        return ResponseEntity.ok(
+                ApiResponse.<List<FlashSaleProductResponse>>builder()
+                        .message("Lấy danh sách sản phẩm flash sale thành công")
+                        .data(flashSaleGate.list())
+                        .build()
+        );
+    }
+
+    private boolean isAdmin(Jwt jwt) {
+        String scope = jwt.getClaimAsString("scope");
+        return scope != null && scope.equals("ROLE_ADMIN");
+    }
+
+    private <T> ResponseEntity<ApiResponse<T>> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(ApiResponse.<T>builder()
+                        .code(403)
+                        .message("Không có quyền truy cập")
+                        .build());
+    }
+}
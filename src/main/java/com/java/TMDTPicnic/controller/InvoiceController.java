@@ -0,0 +1,78 @@
+package com.java.TMDTPicnic.controller;
+
+import com.java.TMDTPicnic.dto.response.ApiResponse;
+import com.java.TMDTPicnic.dto.response.InvoiceBulkResponse;
+import com.java.TMDTPicnic.service.InvoiceService;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/invoices")
+@RequiredArgsConstructor
+public class InvoiceController {
+
+    private final InvoiceService invoiceService;
+
+    /**
+     * Tải hóa đơn PDF của một đơn đã thanh toán (chủ đơn hoặc admin)
+     */
+    @GetMapping("/orders/{orderId}")
+    @Operation(summary = "Tải hóa đơn PDF của đơn hàng đã thanh toán")
+    public ResponseEntity<Resource> getInvoice(
+            @PathVariable Long orderId,
+            @AuthenticationPrincipal Jwt jwt) {
+
+        Long userId = Long.valueOf(jwt.getClaimAsString("sub"));
+        Path file = invoiceService.getInvoice(orderId, userId, isAdmin(jwt));
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFileName() + "\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * Admin: Tạo hóa đơn cho mọi đơn đã thanh toán trong khoảng ngày (bỏ qua đơn đã có file)
+     */
+    @PostMapping("/bulk")
+    @Operation(summary = "ROLE-ADMIN Tạo hóa đơn hàng loạt theo khoảng ngày")
+    public ResponseEntity<ApiResponse<InvoiceBulkResponse>> generateBulk(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate) {
+
+        if (!isAdmin(jwt)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<InvoiceBulkResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        InvoiceBulkResponse result = invoiceService.generateForRange(fromDate, toDate);
+        return ResponseEntity.ok(
+                ApiResponse.<InvoiceBulkResponse>builder()
+                        .message("Đã tạo hóa đơn cho " + result.getGenerated() + " đơn hàng")
+                        .data(result)
+                        .build()
+        );
+    }
+
+    private boolean isAdmin(Jwt jwt) {
+        String scope = jwt.getClaimAsString("scope");
+        return scope != null && scope.equals("ROLE_ADMIN");
+    }
+}
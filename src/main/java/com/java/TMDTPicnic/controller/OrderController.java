@@ -1,10 +1,13 @@
 package com.java.TMDTPicnic.controller;
 
+import com.java.TMDTPicnic.dto.request.BulkOrderStatusUpdateRequest;
 import com.java.TMDTPicnic.dto.request.CheckoutRequest;
 import com.java.TMDTPicnic.dto.request.OrderStatusUpdateRequest;
 import com.java.TMDTPicnic.dto.response.*;
 import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.service.OrderExportService;
 import com.java.TMDTPicnic.service.OrderService;
+import com.java.TMDTPicnic.service.PaymentCallbackService;
 import com.java.TMDTPicnic.service.VNPayService;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,13 +15,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.UnsupportedEncodingException;
+import java.time.LocalDate;
 import java.util.Map;
 
 @RestController
@@ -27,7 +36,9 @@ import java.util.Map;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
     private final VNPayService vnPayService;
+    private final PaymentCallbackService paymentCallbackService;
 
     /**
      * Đặt hàng (checkout) - thanh toán bằng VNPay
@@ -81,10 +92,12 @@ public class OrderController {
             );
         }
 
-        if ("00".equals(responseCode)) {
-            // Thanh toán thành công, cập nhật trạng thái
-            orderService.updatePaymentStatusAfterSuccess(orderId);
+        // Ghi nhận idempotent theo (vnp_TxnRef, vnp_TransactionNo); callback lặp lại trả về ngay,
+        // phần cập nhật đơn hàng sau thanh toán chạy nền
+        paymentCallbackService.handleCallback(orderId, vnpParams.get("vnp_TxnRef"),
+                vnpParams.get("vnp_TransactionNo"), responseCode);
 
+        if ("00".equals(responseCode)) {
             return ResponseEntity.ok(
                     ApiResponse.<String>builder()
                             .message("Thanh toán thành công cho đơn hàng #" + orderId)
@@ -110,10 +123,12 @@ public class OrderController {
     @GetMapping("/history/personal")
     @Operation(summary = "Lấy lịch sử đơn hàng cá nhân của user")
     public ResponseEntity<ApiResponse<OrderHistoryResponse>> getPersonalOrderHistory(
-            @AuthenticationPrincipal Jwt jwt) {
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
 
         Long userId = Long.valueOf(jwt.getClaimAsString("sub"));
-        OrderHistoryResponse orderHistory = orderService.getPersonalOrderHistory(userId);
+        OrderHistoryResponse orderHistory = orderService.getPersonalOrderHistory(userId, cursor, size);
 
         return ResponseEntity.ok(
                 ApiResponse.<OrderHistoryResponse>builder()
@@ -129,10 +144,12 @@ public class OrderController {
     @GetMapping("/history/shared")
     @Operation(summary = "Lấy lịch sử đơn hàng từ shared cart của user")
     public ResponseEntity<ApiResponse<OrderHistoryResponse>> getSharedCartOrderHistory(
-            @AuthenticationPrincipal Jwt jwt) {
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
 
         Long userId = Long.valueOf(jwt.getClaimAsString("sub"));
-        OrderHistoryResponse orderHistory = orderService.getSharedCartOrderHistory(userId);
+        OrderHistoryResponse orderHistory = orderService.getSharedCartOrderHistory(userId, cursor, size);
 
         return ResponseEntity.ok(
                 ApiResponse.<OrderHistoryResponse>builder()
@@ -154,7 +171,8 @@ public class OrderController {
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDir,
             @RequestParam(required = false) OrderStatus status,
-            @RequestParam(required = false) String orderType) {
+            @RequestParam(required = false) String orderType,
+            @RequestParam(defaultValue = "true") boolean withCount) {
 
         String scope = jwt.getClaimAsString("scope");
         if (scope == null || !scope.equals("ROLE_ADMIN")) {
@@ -168,16 +186,20 @@ public class OrderController {
         Sort sort = sortDir.equalsIgnoreCase("ASC") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<OrderSummaryResponse> orderPage = orderService.getAllOrders(pageable, status, orderType);
+        Slice<OrderSummaryResponse> orderPage = orderService.getAllOrders(pageable, status, orderType, withCount);
 
+        // withCount=false: không có tổng số bản ghi, client dùng hasNext để phân trang
+        long totalElements = orderPage instanceof Page<?> p ? p.getTotalElements() : -1;
+        int totalPages = orderPage instanceof Page<?> p ? p.getTotalPages() : -1;
         OrderPageResponse response = new OrderPageResponse(
                 orderPage.getContent(),
                 orderPage.getNumber(),
                 orderPage.getSize(),
-                orderPage.getTotalElements(),
-                orderPage.getTotalPages(),
+                totalElements,
+                totalPages,
                 orderPage.isFirst(),
-                orderPage.isLast()
+                orderPage.isLast(),
+                orderPage.hasNext()
         );
 
         return ResponseEntity.ok(
@@ -188,6 +210,35 @@ public class OrderController {
         );
     }
 
+    /**
+     * Admin: Xuất toàn bộ đơn hàng (kèm dòng hàng) trong khoảng ngày ra CSV hoặc XLSX.
+     * File được ghi trực tiếp vào response theo từng dòng đọc từ DB, không dựng sẵn trong bộ nhớ
+     */
+    @GetMapping("/admin/export")
+    @Operation(summary = "ROLE-ADMIN Xuất đơn hàng theo khoảng ngày ra file CSV/XLSX")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate toDate,
+            @RequestParam(defaultValue = "XLSX") OrderExportService.Format format) {
+
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (toDate.isBefore(fromDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String fileName = "orders_" + fromDate + "_" + toDate + "." + format.getExtension();
+        StreamingResponseBody body = out -> orderExportService.export(fromDate, toDate, format, out);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
+    }
+
     /**
      * Admin: Cập nhật trạng thái đơn hàng từ PAID sang SHIPPED hoặc COMPLETED
      * - SHIPPED: backward compatible với flow cũ
@@ -220,6 +271,35 @@ public class OrderController {
         );
     }
 
+    /**
+     * Admin: Chuyển trạng thái nhiều đơn cùng lúc (PAID -> SHIPPED, hoặc PAID -> COMPLETED với đơn COD).
+     * Trả về kết quả cho từng id: TRANSITIONED, WRONG_STATE hoặc NOT_FOUND
+     */
+    @PutMapping("/admin/bulk-status")
+    @Operation(summary = "ROLE-ADMIN Cập nhật trạng thái hàng loạt (PAID -> SHIPPED/COMPLETED)")
+    public ResponseEntity<ApiResponse<BulkOrderStatusUpdateResponse>> bulkUpdateOrderStatus(
+            @AuthenticationPrincipal Jwt jwt,
+            @RequestBody BulkOrderStatusUpdateRequest request) {
+
+        String scope = jwt.getClaimAsString("scope");
+        if (scope == null || !scope.equals("ROLE_ADMIN")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.<BulkOrderStatusUpdateResponse>builder()
+                            .code(403)
+                            .message("Không có quyền truy cập")
+                            .build());
+        }
+
+        BulkOrderStatusUpdateResponse response = orderService.bulkUpdateOrderStatusByAdmin(request);
+
+        return ResponseEntity.ok(
+                ApiResponse.<BulkOrderStatusUpdateResponse>builder()
+                        .message("Đã cập nhật " + response.getTransitioned() + "/" + response.getRequested() + " đơn hàng")
+                        .data(response)
+                        .build()
+        );
+    }
+
     /**
      * Admin: Xác nhận đã giao hàng thành công cho đơn COD (PAID -> COMPLETED)
      * Endpoint riêng để rõ ràng hơn cho flow COD
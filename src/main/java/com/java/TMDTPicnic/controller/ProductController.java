@@ -5,7 +5,10 @@ import com.java.TMDTPicnic.dto.request.ProductRequest;
 import com.java.TMDTPicnic.dto.response.ProductPageResponse;
 import com.java.TMDTPicnic.dto.response.ProductResponse;
 import com.java.TMDTPicnic.dto.response.ApiResponse;
+import com.java.TMDTPicnic.dto.response.TopProductResponse;
+import com.java.TMDTPicnic.enums.TrendingWindow;
 import com.java.TMDTPicnic.service.ProductService;
+import com.java.TMDTPicnic.service.TrendingProducts;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -25,6 +28,7 @@ import java.util.Map;
 public class ProductController {
 
     private final ProductService productService;
+    private final TrendingProducts trendingProducts;
     private final ObjectMapper mapper = new ObjectMapper();
 
     // === TẠO SẢN PHẨM (ADMIN) ===
@@ -114,6 +118,21 @@ public class ProductController {
                         .build()
         );
     }
+    // === SẢN PHẨM THỊNH HÀNH (bán chạy trong 24h / 7d / 30d gần nhất) ===
+    @GetMapping("/trending")
+    @Operation(summary = "Lấy sản phẩm bán chạy trong khung thời gian gần nhất (24h, 7d, 30d)")
+    public ResponseEntity<ApiResponse<List<TopProductResponse>>> getTrendingProducts(
+            @RequestParam(defaultValue = "7d") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        TrendingWindow trendingWindow = TrendingWindow.fromCode(window);
+        return ResponseEntity.ok(
+                ApiResponse.<List<TopProductResponse>>builder()
+                        .message("Lấy sản phẩm thịnh hành " + trendingWindow.getCode() + " thành công")
+                        .data(trendingProducts.topProducts(trendingWindow, limit))
+                        .build()
+        );
+    }
     // Lấy sản phẩm theo categoryId
     @Operation(summary = "Lấy danh sách sản phẩm theo Category ID (phân trang, rút gọn metadata)")
     @GetMapping("/category/{categoryId}")
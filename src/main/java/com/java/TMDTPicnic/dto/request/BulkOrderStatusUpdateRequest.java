@@ -0,0 +1,18 @@
+package com.java.TMDTPicnic.dto.request;
+
+import com.java.TMDTPicnic.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusUpdateRequest {
+    private List<Long> orderIds;
+    private OrderStatus status;
+}
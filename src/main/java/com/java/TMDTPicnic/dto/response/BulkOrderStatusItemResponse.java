@@ -0,0 +1,14 @@
+package com.java.TMDTPicnic.dto.response;
+
+import com.java.TMDTPicnic.enums.BulkTransitionOutcome;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BulkOrderStatusItemResponse {
+    private Long orderId;
+    private BulkTransitionOutcome outcome;
+    private String previousStatus; // null nếu không tìm thấy đơn
+    private String message;
+}
@@ -0,0 +1,15 @@
+package com.java.TMDTPicnic.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkOrderStatusUpdateResponse {
+    private String targetStatus;
+    private int requested;
+    private int transitioned;
+    private List<BulkOrderStatusItemResponse> results; // theo thứ tự id trong request
+}
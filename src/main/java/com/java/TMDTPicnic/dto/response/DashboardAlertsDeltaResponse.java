@@ -0,0 +1,14 @@
+package com.java.TMDTPicnic.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DashboardAlertsDeltaResponse {
+    private Long version; // gửi lại làm sinceVersion ở lần hỏi sau
+    private Boolean fullSnapshot; // true: changes chứa mọi loại cảnh báo (sinceVersion không hợp lệ / từ trước khi khởi động lại)
+    private List<DashboardAlertsResponse.AlertDetail> changes; // count = 0 nghĩa là cảnh báo đã hết
+}
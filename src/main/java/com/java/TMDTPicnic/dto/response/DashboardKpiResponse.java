@@ -0,0 +1,31 @@
+package com.java.TMDTPicnic.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardKpiResponse {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fromDate;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate toDate;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime computedAt; // thời điểm tính, số liệu được giữ lại tối đa app.dashboard-cache.today-ttl-seconds
+
+    private RevenueKpiResponse revenue;
+    private OrdersKpiResponse orders;
+    private UsersKpiResponse users;
+    private ProductStatsResponse products;
+    private CouponStatsResponse coupons;
+    private SharedCartStatsResponse sharedCarts;
+    private GroupBuyStatsResponse groupBuys;
+}
@@ -0,0 +1,28 @@
+package com.java.TMDTPicnic.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardOverviewResponse {
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate fromDate;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate toDate;
+
+    private OrderSummaryDashboardResponse summary;
+    private List<RevenueByDayResponse> revenueChart;
+    private List<OrdersByDayResponse> ordersChart;
+    private List<UserStatsByDayResponse> usersChart;
+    private List<TopCategoryResponse> topCategories;
+    private List<TopProductResponse> topProducts;
+}
@@ -0,0 +1,12 @@
+package com.java.TMDTPicnic.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class FlashSaleProductResponse {
+    private Long productId;
+    private Integer availableTokens; // số lượng còn cho phép vào checkout
+    private Integer inFlight;        // số lượng đang nằm trong các checkout chưa kết thúc
+}
@@ -0,0 +1,18 @@
+package com.java.TMDTPicnic.dto.response;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+public class InvoiceBulkResponse {
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private int totalOrders;
+    private int generated;   // số hóa đơn vừa tạo
+    private int cached;      // đã có file từ trước, bỏ qua
+    private int failed;
+    private long elapsedMs;
+}
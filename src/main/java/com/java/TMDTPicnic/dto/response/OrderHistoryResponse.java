@@ -9,4 +9,5 @@ import java.util.List;
 @Builder
 public class OrderHistoryResponse {
     private List<OrderSummaryResponse> orders;
+    private String nextCursor; // truyền lại để lấy trang sau, null nếu đã hết
 }
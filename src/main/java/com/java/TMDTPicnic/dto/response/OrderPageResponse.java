@@ -11,9 +11,10 @@ public class OrderPageResponse {
     private List<OrderSummaryResponse> content;
     private int number;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    private long totalElements; // -1 khi bỏ qua count
+    private int totalPages;     // -1 khi bỏ qua count
     private boolean first;
     private boolean last;
+    private boolean hasNext;
 }
 
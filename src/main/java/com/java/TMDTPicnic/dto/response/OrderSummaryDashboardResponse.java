@@ -4,8 +4,10 @@ import lombok.Data;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class OrderSummaryDashboardResponse {
     private OrderStatusResponse ordersStatus;
+    private Map<String, Long> ordersByType; // SINGLE / GROUP / SHARED_CART -> số đơn
 }
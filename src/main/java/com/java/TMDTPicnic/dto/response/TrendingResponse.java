@@ -0,0 +1,14 @@
+package com.java.TMDTPicnic.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TrendingResponse {
+    private String window; // 24h, 7d, 30d
+    private List<TopProductResponse> topProducts;
+    private List<TopCategoryResponse> topCategories;
+}
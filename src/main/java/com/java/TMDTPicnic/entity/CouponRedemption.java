@@ -0,0 +1,38 @@
+package com.java.TMDTPicnic.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sổ ghi các lần dùng mã giảm giá: coupon nào, ai dùng, cho đơn nào
+ */
+@Entity
+@Table(name = "coupon_redemptions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_coupon_redemptions_order", columnNames = "order_id"),
+        indexes = @Index(name = "idx_coupon_redemptions_coupon_user", columnList = "coupon_id, user_id"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class CouponRedemption {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "coupon_id", nullable = false)
+    private Coupon coupon;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Không đặt khóa ngoại tới orders (giống StockReservation)
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    private BigDecimal discountAmount;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime redeemedAt;
+}
@@ -0,0 +1,53 @@
+package com.java.TMDTPicnic.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.java.TMDTPicnic.enums.OrderEventStatus;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox sự kiện vòng đời đơn hàng, được ghi cùng transaction với Order
+ * và được OrderEventDispatcher xử lý nền (at-least-once)
+ */
+@Entity
+@Table(name = "order_events", indexes = {
+        @Index(name = "idx_order_events_due", columnList = "status, available_at"),
+        @Index(name = "idx_order_events_order", columnList = "order_id")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class OrderEvent {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private OrderEventType eventType;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload; // JSON: {"orderType": "...", "status": "...", "previousStatus": "...", ...}
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OrderEventStatus status;
+
+    private Integer attempts;
+
+    // Thời điểm sớm nhất được xử lý (lùi lại khi đang được xử lý hoặc khi retry)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "available_at")
+    private LocalDateTime availableAt;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,49 @@
+package com.java.TMDTPicnic.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Nhật ký callback VNPay, mỗi cặp (vnp_TxnRef, vnp_TransactionNo) chỉ được ghi nhận một lần
+ */
+@Entity
+@Table(name = "payment_callbacks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_callbacks_txn", columnNames = {"txn_ref", "transaction_no"}),
+        indexes = @Index(name = "idx_payment_callbacks_pending", columnList = "processed_at, received_at"))
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class PaymentCallback {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "txn_ref", nullable = false, length = 64)
+    private String txnRef;
+
+    @Column(name = "transaction_no", nullable = false, length = 64)
+    private String transactionNo;
+
+    private Long orderId;
+    private String responseCode;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "received_at")
+    private LocalDateTime receivedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt; // null = chưa xử lý xong phần việc sau thanh toán
+
+    private Integer attempts; // số lần đã lấy ra xử lý
+
+    // Thời điểm lần xử lý gần nhất được lấy ra; trong thời gian lease thì lượt quét lại bỏ qua
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // Khác null = quá số lần thử, không quét lại nữa, cần xử lý thủ công
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
@@ -0,0 +1,42 @@
+package com.java.TMDTPicnic.entity;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.java.TMDTPicnic.enums.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Giữ hàng cho một dòng của đơn đang chờ thanh toán online (VNPay).
+ * Tồn kho đã được trừ khi tạo đơn; nếu hết hạn mà chưa thanh toán thì hoàn lại.
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservations_order", columnList = "order_id"),
+        @Index(name = "idx_stock_reservations_status_expires", columnList = "status, expires_at")
+})
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class StockReservation {
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    private Integer qty;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private ReservationStatus status;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.java.TMDTPicnic.enums;
+
+public enum BulkTransitionOutcome {
+    TRANSITIONED,   // đã chuyển sang trạng thái đích
+    WRONG_STATE,    // trạng thái hiện tại không cho phép chuyển
+    NOT_FOUND       // không có đơn với id này
+}
@@ -0,0 +1,8 @@
+package com.java.TMDTPicnic.enums;
+
+public enum DashboardAlertType {
+    ORDER_OVERDUE,          // đơn PENDING quá hạn
+    LOW_STOCK,              // sản phẩm đang bán sắp hết hàng
+    GROUP_BUY_ENDING,       // chiến dịch mua chung sắp kết thúc
+    SHARED_CART_EXPIRING    // giỏ chung đang mở sắp hết hạn
+}
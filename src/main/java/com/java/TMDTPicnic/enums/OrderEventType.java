@@ -0,0 +1,9 @@
+package com.java.TMDTPicnic.enums;
+
+public enum OrderEventType {
+    ORDER_CREATED,
+    ORDER_PAID,
+    ORDER_CANCELLED,
+    ORDER_SHIPPED,
+    ORDER_COMPLETED
+}
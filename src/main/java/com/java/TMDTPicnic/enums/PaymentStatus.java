@@ -4,5 +4,6 @@ public enum PaymentStatus {
     PENDING,
     SUCCESS,
     FAILED,
-    REFUNDED
+    REFUNDED,
+    REFUND_REQUIRED // tiền đã nhận sau khi đơn bị hủy/hết hạn giữ hàng, chờ hoàn tiền thủ công
 }
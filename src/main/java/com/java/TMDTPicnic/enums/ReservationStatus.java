@@ -0,0 +1,7 @@
+package com.java.TMDTPicnic.enums;
+
+public enum ReservationStatus {
+    ACTIVE,
+    COMMITTED,
+    RELEASED
+}
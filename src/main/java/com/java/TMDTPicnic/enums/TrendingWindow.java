@@ -0,0 +1,32 @@
+package com.java.TMDTPicnic.enums;
+
+public enum TrendingWindow {
+    LAST_24H("24h", 24),
+    LAST_7D("7d", 7 * 24),
+    LAST_30D("30d", 30 * 24);
+
+    private final String code;
+    private final int hours;
+
+    TrendingWindow(String code, int hours) {
+        this.code = code;
+        this.hours = hours;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public static TrendingWindow fromCode(String code) {
+        for (TrendingWindow window : values()) {
+            if (window.code.equalsIgnoreCase(code)) {
+                return window;
+            }
+        }
+        throw new RuntimeException("Khung thời gian không hợp lệ (24h, 7d, 30d): " + code);
+    }
+}
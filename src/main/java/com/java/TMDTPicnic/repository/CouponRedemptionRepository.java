@@ -0,0 +1,15 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.CouponRedemption;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface CouponRedemptionRepository extends JpaRepository<CouponRedemption, Long> {
+
+    @Query("SELECT COUNT(r) FROM CouponRedemption r WHERE r.redeemedAt >= :fromInclusive AND r.redeemedAt < :toExclusive")
+    long countRedeemedBetween(@Param("fromInclusive") LocalDateTime fromInclusive,
+                              @Param("toExclusive") LocalDateTime toExclusive);
+}
@@ -4,15 +4,28 @@ import com.java.TMDTPicnic.entity.Coupon;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface CouponRepository extends JpaRepository<Coupon, Long> {
     Optional<Coupon> findByCode(String code);
 
+    @Query("SELECT COALESCE(c.usedCount, 0) FROM Coupon c WHERE c.id = :id")
+    Optional<Integer> findUsedCountById(@Param("id") Long id);
+
+    // Tăng lượt dùng nguyên tử: chỉ thành công (trả về 1) khi mã còn hiệu lực và còn lượt
+    @Modifying
+    @Query("UPDATE Coupon c SET c.usedCount = COALESCE(c.usedCount, 0) + 1 " +
+            "WHERE c.code = :code " +
+            "AND COALESCE(c.usedCount, 0) < c.usageLimit " +
+            "AND :now BETWEEN c.validFrom AND c.validTo")
+    int incrementUsageIfAvailable(@Param("code") String code, @Param("now") LocalDateTime now);
+
     @Query("SELECT c FROM Coupon c " +
             "WHERE (:keyword IS NULL OR LOWER(c.code) LIKE LOWER(CONCAT('%', :keyword, '%')) " +
             "   OR LOWER(c.description) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
@@ -28,4 +41,21 @@ public interface CouponRepository extends JpaRepository<Coupon, Long> {
             @Param("now") LocalDateTime now,
             Pageable pageable
     );
+
+    // Một lần quét, tổng đếm qua window function nên mỗi dòng trả về đều mang đủ số liệu:
+    // [id, code, used_count, usage_limit, active, expired, fully_used], chỉ giữ limit mã dùng nhiều nhất
+    @Query(value = """
+        SELECT id, code, used_count, usage_limit, active_coupons, expired_coupons, fully_used_coupons
+        FROM (
+            SELECT c.id, c.code, COALESCE(c.used_count, 0) AS used_count, c.usage_limit,
+                   ROW_NUMBER() OVER (ORDER BY COALESCE(c.used_count, 0) DESC, c.id) AS usage_rank,
+                   SUM(c.valid_from <= :now AND c.valid_to >= :now) OVER () AS active_coupons,
+                   SUM(c.valid_to < :now) OVER () AS expired_coupons,
+                   SUM(COALESCE(c.used_count, 0) >= c.usage_limit) OVER () AS fully_used_coupons
+            FROM coupons c
+        ) ranked
+        WHERE usage_rank <= :limit
+        ORDER BY usage_rank
+    """, nativeQuery = true)
+    List<Object[]> getCouponStatsRaw(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
@@ -0,0 +1,245 @@
+package com.java.TMDTPicnic.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Đọc/ghi các bảng tổng hợp theo ngày của dashboard (daily_order_rollups, daily_user_rollups)
+ */
+@Repository
+@RequiredArgsConstructor
+public class DashboardRollupRepository {
+
+    /**
+     * Một dòng rollup đơn: số đơn và tổng tiền của các đơn tạo trong ngày day, theo loại đơn và trạng thái hiện tại.
+     * Khi dùng làm delta thì orderCount/revenue có thể âm.
+     */
+    public record OrderRollup(LocalDate day, String orderType, String status, long orderCount, BigDecimal revenue) {}
+
+    /**
+     * Tổng của một ngày: số đơn, doanh thu và số đơn theo từng trạng thái
+     */
+    public record DailyTotals(LocalDate day, long orders, BigDecimal revenue,
+                              long completed, long pending, long paid, long shipped, long cancelled) {}
+
+    private static final Comparator<OrderRollup> KEY_ORDER = Comparator
+            .comparing(OrderRollup::day)
+            .thenComparing(OrderRollup::orderType)
+            .thenComparing(OrderRollup::status);
+
+    private static final String ADD_ORDERS_SQL = """
+        INSERT INTO daily_order_rollups (day, order_type, status, order_count, revenue)
+        VALUES (?, ?, ?, ?, ?) AS delta
+        ON DUPLICATE KEY UPDATE order_count = daily_order_rollups.order_count + delta.order_count,
+                                revenue = daily_order_rollups.revenue + delta.revenue
+    """;
+
+    private static final String ADD_NEW_USERS_SQL = """
+        INSERT INTO daily_user_rollups (day, new_users)
+        VALUES (?, ?) AS delta
+        ON DUPLICATE KEY UPDATE new_users = daily_user_rollups.new_users + delta.new_users
+    """;
+
+    private static final String FIND_ORDER_ROLLUPS_SQL = """
+        SELECT day, order_type, status, order_count, revenue
+        FROM daily_order_rollups
+        WHERE day >= ? AND day <= ?
+        ORDER BY day
+    """;
+
+    private static final String DAILY_TOTALS_SQL = """
+        SELECT day,
+               SUM(order_count),
+               SUM(revenue),
+               SUM(CASE WHEN status = 'COMPLETED' THEN order_count ELSE 0 END),
+               SUM(CASE WHEN status = 'PENDING' THEN order_count ELSE 0 END),
+               SUM(CASE WHEN status = 'PAID' THEN order_count ELSE 0 END),
+               SUM(CASE WHEN status = 'SHIPPED' THEN order_count ELSE 0 END),
+               SUM(CASE WHEN status = 'CANCELLED' THEN order_count ELSE 0 END)
+        FROM daily_order_rollups
+        WHERE day >= ? AND day <= ?
+        GROUP BY day
+        HAVING SUM(order_count) <> 0
+        ORDER BY day
+    """;
+
+    private static final String FIND_USER_ROLLUPS_SQL = """
+        SELECT day, new_users
+        FROM daily_user_rollups
+        WHERE day >= ? AND day <= ? AND new_users <> 0
+        ORDER BY day
+    """;
+
+    // Tính lại từ bảng gốc, gồm cả đơn đã lưu trữ
+    private static final String COMPUTE_ORDER_ROLLUPS_SQL = """
+        SELECT DATE(created_at), COALESCE(order_type, 'SINGLE'), status, COUNT(*), COALESCE(SUM(total_amount), 0)
+        FROM (SELECT created_at, order_type, status, total_amount FROM orders
+              WHERE created_at >= ? AND created_at < ?
+              UNION ALL
+              SELECT created_at, order_type, status, total_amount FROM orders_archive
+              WHERE created_at >= ? AND created_at < ?) o
+        WHERE status IS NOT NULL
+        GROUP BY DATE(created_at), COALESCE(order_type, 'SINGLE'), status
+    """;
+
+    private static final String COMPUTE_USER_ROLLUPS_SQL = """
+        SELECT DATE(created_at), COUNT(*)
+        FROM users
+        WHERE created_at >= ? AND created_at < ?
+        GROUP BY DATE(created_at)
+    """;
+
+    private static final String PENDING_EVENT_IDS_SQL = """
+        SELECT e.id
+        FROM order_events e
+        JOIN orders o ON o.id = e.order_id
+        WHERE e.status = 'PENDING' AND o.created_at >= ? AND o.created_at < ?
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<OrderRollup> findOrderRollups(LocalDate fromDate, LocalDate toDate) {
+        return jdbcTemplate.query(FIND_ORDER_ROLLUPS_SQL, (rs, i) -> new OrderRollup(
+                rs.getDate(1).toLocalDate(),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getLong(4),
+                rs.getBigDecimal(5)), Date.valueOf(fromDate), Date.valueOf(toDate));
+    }
+
+    public List<DailyTotals> findDailyTotals(LocalDate fromDate, LocalDate toDate) {
+        return jdbcTemplate.query(DAILY_TOTALS_SQL, (rs, i) -> new DailyTotals(
+                rs.getDate(1).toLocalDate(),
+                rs.getLong(2),
+                rs.getBigDecimal(3),
+                rs.getLong(4),
+                rs.getLong(5),
+                rs.getLong(6),
+                rs.getLong(7),
+                rs.getLong(8)), Date.valueOf(fromDate), Date.valueOf(toDate));
+    }
+
+    // [date, new_users, 0]
+    public List<Object[]> findUserRollups(LocalDate fromDate, LocalDate toDate) {
+        return jdbcTemplate.query(FIND_USER_ROLLUPS_SQL, (rs, i) -> new Object[]{rs.getDate(1), rs.getLong(2), 0L},
+                Date.valueOf(fromDate), Date.valueOf(toDate));
+    }
+
+    /**
+     * Cộng dồn các delta; khóa dòng theo thứ tự khóa chính để các giao dịch đồng thời không deadlock
+     */
+    public void addOrders(Collection<OrderRollup> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<OrderRollup> rows = new ArrayList<>(deltas);
+        rows.sort(KEY_ORDER);
+        jdbcTemplate.batchUpdate(ADD_ORDERS_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setDate(1, Date.valueOf(row.day()));
+            ps.setString(2, row.orderType());
+            ps.setString(3, row.status());
+            ps.setLong(4, row.orderCount());
+            ps.setBigDecimal(5, row.revenue());
+        });
+    }
+
+    public void addNewUsers(LocalDate day, long count) {
+        jdbcTemplate.update(ADD_NEW_USERS_SQL, Date.valueOf(day), count);
+    }
+
+    public boolean isApplied(Long eventId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM dashboard_rollup_applied_events WHERE event_id = ?", Long.class, eventId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Ghi nhận sự kiện đã cộng vào rollup; trùng khóa (đã ghi nhận) thì ném DuplicateKeyException
+     */
+    public void markApplied(Long eventId, LocalDateTime appliedAt) {
+        jdbcTemplate.update("INSERT INTO dashboard_rollup_applied_events (event_id, applied_at) VALUES (?, ?)",
+                eventId, Timestamp.valueOf(appliedAt));
+    }
+
+    public void markAppliedIfAbsent(List<Long> eventIds, LocalDateTime appliedAt) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        Timestamp at = Timestamp.valueOf(appliedAt);
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO dashboard_rollup_applied_events (event_id, applied_at) VALUES (?, ?)",
+                eventIds, eventIds.size(), (ps, eventId) -> {
+                    ps.setLong(1, eventId);
+                    ps.setTimestamp(2, at);
+                });
+    }
+
+    public int purgeAppliedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM dashboard_rollup_applied_events WHERE applied_at < ?",
+                Timestamp.valueOf(before));
+    }
+
+    /**
+     * Khóa (kể cả khoảng trống) các dòng rollup của [fromDate, toExclusive) đến hết transaction,
+     * handler đang cộng dồn vào những ngày này phải chờ
+     */
+    public void lockDays(LocalDate fromDate, LocalDate toExclusive) {
+        Date from = Date.valueOf(fromDate);
+        Date to = Date.valueOf(toExclusive);
+        jdbcTemplate.queryForList("SELECT day FROM daily_order_rollups WHERE day >= ? AND day < ? FOR UPDATE",
+                Date.class, from, to);
+        jdbcTemplate.queryForList("SELECT day FROM daily_user_rollups WHERE day >= ? AND day < ? FOR UPDATE",
+                Date.class, from, to);
+    }
+
+    public List<OrderRollup> computeOrderRollups(LocalDate fromDate, LocalDate toExclusive) {
+        Timestamp from = Timestamp.valueOf(fromDate.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(toExclusive.atStartOfDay());
+        return jdbcTemplate.query(COMPUTE_ORDER_ROLLUPS_SQL, (rs, i) -> new OrderRollup(
+                rs.getDate(1).toLocalDate(),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getLong(4),
+                rs.getBigDecimal(5)), from, to, from, to);
+    }
+
+    public Map<LocalDate, Long> computeUserRollups(LocalDate fromDate, LocalDate toExclusive) {
+        Map<LocalDate, Long> newUsers = new LinkedHashMap<>();
+        jdbcTemplate.query(COMPUTE_USER_ROLLUPS_SQL, rs -> {
+            newUsers.put(rs.getDate(1).toLocalDate(), rs.getLong(2));
+        }, Timestamp.valueOf(fromDate.atStartOfDay()), Timestamp.valueOf(toExclusive.atStartOfDay()));
+        return newUsers;
+    }
+
+    /**
+     * Sự kiện outbox chưa xử lý của các đơn tạo trong [fromDate, toExclusive)
+     */
+    public List<Long> findPendingEventIds(LocalDate fromDate, LocalDate toExclusive) {
+        return jdbcTemplate.queryForList(PENDING_EVENT_IDS_SQL, Long.class,
+                Timestamp.valueOf(fromDate.atStartOfDay()), Timestamp.valueOf(toExclusive.atStartOfDay()));
+    }
+
+    public void replaceOrderRollups(LocalDate fromDate, LocalDate toExclusive, List<OrderRollup> rows) {
+        jdbcTemplate.update("DELETE FROM daily_order_rollups WHERE day >= ? AND day < ?",
+                Date.valueOf(fromDate), Date.valueOf(toExclusive));
+        addOrders(rows);
+    }
+
+    public void replaceUserRollups(LocalDate fromDate, LocalDate toExclusive, Map<LocalDate, Long> newUsers) {
+        jdbcTemplate.update("DELETE FROM daily_user_rollups WHERE day >= ? AND day < ?",
+                Date.valueOf(fromDate), Date.valueOf(toExclusive));
+        newUsers.forEach(this::addNewUsers);
+    }
+}
@@ -4,26 +4,27 @@ import com.java.TMDTPicnic.entity.GroupBuyCampaign;
 import com.java.TMDTPicnic.enums.GroupBuyStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface GroupBuyCampaignRepository extends JpaRepository<GroupBuyCampaign, Long> {
     List<GroupBuyCampaign> findByStatus(GroupBuyStatus status);
 
     // ===== GROUP BUY STATS =====
-    @Query("SELECT COUNT(gbc) FROM GroupBuyCampaign gbc WHERE gbc.status = 'ACTIVE'")
-    Long countActiveCampaigns();
-
+    // Một lần quét: [đang chạy, sắp kết thúc (end_at trong [now, endingBefore]), thành công, thất bại]
     @Query(value = """
-        SELECT COUNT(*)
+        SELECT
+            COALESCE(SUM(status = 'ACTIVE'), 0),
+            COALESCE(SUM(status = 'ACTIVE' AND end_at BETWEEN :now AND :endingBefore), 0),
+            COALESCE(SUM(status = 'SUCCESS'), 0),
+            COALESCE(SUM(status = 'FAILED'), 0)
         FROM group_buy_campaigns
-        WHERE status = 'ACTIVE'
-          AND end_at BETWEEN NOW() AND DATE_ADD(NOW(), INTERVAL 7 DAY)
     """, nativeQuery = true)
-    Long countEndingSoonCampaigns();
-
-    @Query("SELECT COUNT(gbc) FROM GroupBuyCampaign gbc WHERE gbc.status = 'SUCCESS'")
-    Long countSuccessfulCampaigns();
+    List<Object[]> getCampaignStatsRaw(@Param("now") LocalDateTime now,
+                                       @Param("endingBefore") LocalDateTime endingBefore);
 
-    @Query("SELECT COUNT(gbc) FROM GroupBuyCampaign gbc WHERE gbc.status = 'FAILED'")
-    Long countFailedCampaigns();
+    // Cảnh báo dashboard: chiến dịch theo trạng thái kết thúc trong [from, to] (idx_group_buy_campaigns_status_end)
+    long countByStatusAndEndAtBetween(GroupBuyStatus status, LocalDateTime from, LocalDateTime to);
 }
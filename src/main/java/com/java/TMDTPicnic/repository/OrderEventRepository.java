@@ -0,0 +1,42 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    // Lấy một lô sự kiện đến hạn, bỏ qua các dòng đang bị instance khác khóa.
+    // Chỉ lấy sự kiện PENDING cũ nhất của mỗi đơn: sự kiện sau chờ đến khi sự kiện trước
+    // DONE/FAILED, kể cả khi sự kiện trước đang được xử lý hay đang chờ retry
+    @Query(value = """
+        SELECT *
+        FROM order_events e
+        WHERE e.status = 'PENDING' AND e.available_at <= :now
+          AND NOT EXISTS (
+              SELECT 1 FROM order_events p
+              WHERE p.order_id = e.order_id AND p.status = 'PENDING' AND p.id < e.id
+          )
+        ORDER BY e.id
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OrderEvent> findDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OrderEvent e SET e.status = :status, e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids,
+                      @Param("status") OrderEventStatus status,
+                      @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("DELETE FROM OrderEvent e WHERE e.status = com.java.TMDTPicnic.enums.OrderEventStatus.DONE AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
@@ -7,6 +7,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
@@ -18,4 +20,34 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "WHERE oi.order = :order")
     List<OrderItem> findByOrderWithProductAndImages(@Param("order") Order order);
 
+    // Dòng hàng kèm sản phẩm trong một câu truy vấn (hóa đơn)
+    @Query("SELECT oi FROM OrderItem oi LEFT JOIN FETCH oi.product WHERE oi.order.id = :orderId ORDER BY oi.id")
+    List<OrderItem> findByOrderIdWithProduct(@Param("orderId") Long orderId);
+
+    // [productId, qty] của các dòng hàng trong đơn, không nạp Product
+    @Query("SELECT oi.product.id, oi.qty FROM OrderItem oi WHERE oi.order.id = :orderId")
+    List<Object[]> findProductQuantitiesByOrderId(@Param("orderId") Long orderId);
+
+    // [orderId, url]: ảnh có id nhỏ nhất của sản phẩm thuộc order_item có id nhỏ nhất, cho nhiều đơn một lúc
+    @Query(value = """
+        SELECT oi.order_id,
+            (SELECT pi.url FROM product_images pi WHERE pi.product_id = oi.product_id ORDER BY pi.id LIMIT 1)
+        FROM order_items oi
+        WHERE oi.id IN (SELECT MIN(first_item.id) FROM order_items first_item
+                        WHERE first_item.order_id IN (:orderIds)
+                        GROUP BY first_item.order_id)
+    """, nativeQuery = true)
+    List<Object[]> findFirstThumbnailsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    // [orderId, soldAt, productId, qty] của các đơn đã bán tạo từ createdSince, soldAt = lúc thanh toán (không có thì lúc tạo)
+    @Query(value = """
+        SELECT o.id, COALESCE(pay.paid_at, o.created_at), oi.product_id, SUM(oi.qty)
+        FROM orders o
+        JOIN order_items oi ON oi.order_id = o.id
+        LEFT JOIN payments pay ON pay.order_id = o.id
+        WHERE o.created_at >= :createdSince AND o.status IN ('PAID', 'SHIPPED', 'COMPLETED')
+        GROUP BY o.id, COALESCE(pay.paid_at, o.created_at), oi.product_id
+    """, nativeQuery = true)
+    List<Object[]> findSoldItemsSinceRaw(@Param("createdSince") LocalDateTime createdSince);
+
 }
@@ -4,72 +4,142 @@ import com.java.TMDTPicnic.dto.response.*;
 import com.java.TMDTPicnic.entity.Order;
 import com.java.TMDTPicnic.entity.SharedCart;
 import com.java.TMDTPicnic.entity.User;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
 
     Optional<Order> findBySharedCartAndOrderType(SharedCart sharedCart, String orderType);
     Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+    long count(Specification<Order> spec);
+
+    // Chuyển trạng thái có điều kiện cho nhiều đơn (chỉ các đơn còn ở currentStatus)
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :newStatus WHERE o.id IN :ids AND o.status = :currentStatus")
+    int updateStatusByIdsAndStatus(@Param("ids") Collection<Long> ids,
+                                   @Param("currentStatus") OrderStatus currentStatus,
+                                   @Param("newStatus") OrderStatus newStatus);
+
+    // Khóa một đơn trước khi đổi trạng thái (hủy, thanh toán); luôn khóa đơn trước rồi mới khóa giữ hàng
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") Long id);
+
+    // Khóa các đơn để chuyển trạng thái hàng loạt, không nạp entity:
+    // [id, status, order_type, user_id, shared_cart_id, total_amount, created_at, payment_method]
+    @Query(value = """
+        SELECT o.id, o.status, o.order_type, o.user_id, o.shared_cart_id, o.total_amount, o.created_at,
+            (SELECT p.payment_method FROM payments p WHERE p.order_id = o.id ORDER BY p.id LIMIT 1) AS payment_method
+        FROM orders o
+        WHERE o.id IN (:ids)
+        ORDER BY o.id
+        FOR UPDATE
+    """, nativeQuery = true)
+    List<Object[]> findStatusRowsForUpdate(@Param("ids") Collection<Long> ids);
+
+    // Id các đơn trong khoảng thời gian theo trạng thái, phân trang keyset theo id
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statuses " +
+           "AND o.createdAt >= :fromInclusive AND o.createdAt < :toExclusive AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusInAndCreatedAtRange(@Param("statuses") Collection<OrderStatus> statuses,
+                                                  @Param("fromInclusive") LocalDateTime fromInclusive,
+                                                  @Param("toExclusive") LocalDateTime toExclusive,
+                                                  @Param("afterId") Long afterId,
+                                                  Pageable pageable);
 
     // ===== ORDER HISTORY =====
     List<Order> findByUserOrderByCreatedAtDesc(User user);
-    List<Order> findByUserAndOrderTypeIsOrderByCreatedAtDesc(User user, String orderType);
-    List<Order> findByUserAndOrderTypeIsNotOrderByCreatedAtDesc(User user, String orderType);
 
-    // ===== SUMMARY =====
-    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o")
-    BigDecimal totalRevenue();
+    // Một dòng tóm tắt mỗi đơn: [id, total_amount, status, order_type, created_at, thumbnail, payment_method]
+    // thumbnail = ảnh có id nhỏ nhất của sản phẩm thuộc order_item có id nhỏ nhất
+    String ORDER_SUMMARY_COLUMNS = """
+        SELECT o.id, o.total_amount, o.status, o.order_type, o.created_at,
+            (SELECT pi.url FROM product_images pi
+             WHERE pi.product_id = (SELECT oi.product_id FROM order_items oi
+                                    WHERE oi.order_id = o.id ORDER BY oi.id LIMIT 1)
+             ORDER BY pi.id LIMIT 1) AS thumbnail,
+            (SELECT p.payment_method FROM payments p WHERE p.order_id = o.id ORDER BY p.id LIMIT 1) AS payment_method
+        FROM orders o
+    """;
 
-    @Query("SELECT COUNT(o) FROM Order o")
-    Long totalOrders();
+    // Keyset: đơn đứng sau con trỏ (createdAt, id) theo thứ tự created_at DESC, id DESC
+    String HISTORY_KEYSET = """
+        AND (:cursorCreatedAt IS NULL
+             OR o.created_at < :cursorCreatedAt
+             OR (o.created_at = :cursorCreatedAt AND o.id < :cursorId))
+        ORDER BY o.created_at DESC, o.id DESC
+        LIMIT :limit
+    """;
 
-    @Query(value = """
-        SELECT 
-            COUNT(*) as totalOrders,
-            SUM(CASE WHEN status = 'COMPLETED' THEN 1 ELSE 0 END) as completedCount,
-            SUM(CASE WHEN status = 'PENDING' THEN 1 ELSE 0 END) as pendingCount,
-            SUM(CASE WHEN status = 'PAID' THEN 1 ELSE 0 END) as paidCount,
-            SUM(CASE WHEN status = 'SHIPPED' THEN 1 ELSE 0 END) as shippedCount
-        FROM orders 
-        WHERE DATE(created_at) BETWEEN :fromDate AND :toDate
-    """, nativeQuery = true)
-    OrderStatusResponse getOrderStatusWithDayRange(@Param("fromDate") LocalDate fromDate,
-                                                   @Param("toDate") LocalDate toDate);
+    @Query(value = ORDER_SUMMARY_COLUMNS + " WHERE o.user_id = :userId AND o.order_type <> 'SHARED_CART' " + HISTORY_KEYSET,
+            nativeQuery = true)
+    List<Object[]> findPersonalHistoryPage(@Param("userId") Long userId,
+                                           @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                           @Param("cursorId") Long cursorId,
+                                           @Param("limit") int limit);
 
+    @Query(value = ORDER_SUMMARY_COLUMNS + " WHERE o.user_id = :userId AND o.order_type = 'SHARED_CART' " + HISTORY_KEYSET,
+            nativeQuery = true)
+    List<Object[]> findSharedCartHistoryPage(@Param("userId") Long userId,
+                                             @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                             @Param("cursorId") Long cursorId,
+                                             @Param("limit") int limit);
 
-    // ===== REVENUE BY DAY WITH DATE RANGE =====
-    @Query(value = """
-        SELECT 
-            DATE(created_at) as date,
-            COALESCE(SUM(total_amount), 0) as revenue
-        FROM orders
-        WHERE DATE(created_at) BETWEEN :fromDate AND :toDate
-        GROUP BY DATE(created_at)
-        ORDER BY DATE(created_at)
-    """, nativeQuery = true)
-    List<Object[]> getRevenueByDayRawWithDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    // Cùng cột với ORDER_SUMMARY_COLUMNS nhưng đọc từ các bảng lưu trữ
+    String ARCHIVE_SUMMARY_COLUMNS = """
+        SELECT o.id, o.total_amount, o.status, o.order_type, o.created_at,
+            (SELECT pi.url FROM product_images pi
+             WHERE pi.product_id = (SELECT oi.product_id FROM order_items_archive oi
+                                    WHERE oi.order_id = o.id ORDER BY oi.id LIMIT 1)
+             ORDER BY pi.id LIMIT 1) AS thumbnail,
+            (SELECT p.payment_method FROM payments_archive p WHERE p.order_id = o.id ORDER BY p.id LIMIT 1) AS payment_method
+        FROM orders_archive o
+    """;
 
+    @Query(value = ARCHIVE_SUMMARY_COLUMNS + " WHERE o.user_id = :userId AND o.order_type <> 'SHARED_CART' " + HISTORY_KEYSET,
+            nativeQuery = true)
+    List<Object[]> findArchivedPersonalHistoryPage(@Param("userId") Long userId,
+                                                   @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                   @Param("cursorId") Long cursorId,
+                                                   @Param("limit") int limit);
 
-    // ===== ORDERS BY DAY WITH DATE RANGE =====
+    @Query(value = ARCHIVE_SUMMARY_COLUMNS + " WHERE o.user_id = :userId AND o.order_type = 'SHARED_CART' " + HISTORY_KEYSET,
+            nativeQuery = true)
+    List<Object[]> findArchivedSharedCartHistoryPage(@Param("userId") Long userId,
+                                                     @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                     @Param("cursorId") Long cursorId,
+                                                     @Param("limit") int limit);
+
+    // User đã mua sản phẩm trong một đơn COMPLETED đã chuyển sang bảng lưu trữ
     @Query(value = """
-        SELECT 
-            DATE(created_at) as date,
-            COUNT(*) as orders
-        FROM orders
-        WHERE DATE(created_at) BETWEEN :fromDate AND :toDate
-        GROUP BY DATE(created_at)
-        ORDER BY DATE(created_at)
+        SELECT COUNT(*)
+        FROM orders_archive o
+        JOIN order_items_archive oi ON oi.order_id = o.id
+        WHERE o.user_id = :userId AND oi.product_id = :productId AND o.status = 'COMPLETED'
     """, nativeQuery = true)
-    List<Object[]> getOrdersByDayRawWithDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    long countArchivedPurchases(@Param("userId") Long userId, @Param("productId") Long productId);
+
+    // Cảnh báo dashboard: đơn ở trạng thái status tạo trước createdBefore (idx_orders_status_created)
+    long countByStatusAndCreatedAtBefore(OrderStatus status, LocalDateTime createdBefore);
+
+    // ===== SUMMARY =====
+    @Query("SELECT COALESCE(SUM(o.totalAmount), 0) FROM Order o")
+    BigDecimal totalRevenue();
+
+    @Query("SELECT COUNT(o) FROM Order o")
+    Long totalOrders();
 
 }
@@ -0,0 +1,88 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * Các cột của đơn dùng cho trang danh sách (không nạp entity nên không kéo theo user/coupon/sharedCart)
+     */
+    record OrderRow(Long id, BigDecimal totalAmount, OrderStatus status, String orderType, LocalDateTime createdAt) {}
+
+    /**
+     * Lấy tối đa limit dòng bắt đầu từ offset của pageable, theo sort của pageable
+     */
+    List<OrderRow> findOrderRows(Specification<Order> spec, Pageable pageable, int limit);
+
+    /**
+     * Một dòng xuất file: thông tin đơn lặp lại trên mỗi dòng hàng (đơn không có dòng hàng thì các cột item null)
+     */
+    record OrderExportRow(
+            Long orderId,
+            LocalDateTime createdAt,
+            String status,
+            String orderType,
+            Long userId,
+            String userEmail,
+            BigDecimal totalAmount,
+            String couponCode,
+            String paymentMethod,
+            String paymentStatus,
+            Long productId,
+            String productName,
+            Integer qty,
+            BigDecimal unitPrice
+    ) {}
+
+    /**
+     * Đọc tuần tự mọi dòng hàng của các đơn tạo trong [fromInclusive, toExclusive) bằng con trỏ JDBC,
+     * từng dòng được đưa cho consumer ngay khi đọc được, không giữ lại trong bộ nhớ.
+     * Đơn ở bảng chính trước, sau đó đến đơn đã lưu trữ
+     */
+    void streamExportRows(LocalDateTime fromInclusive, LocalDateTime toExclusive, Consumer<OrderExportRow> consumer);
+
+    /**
+     * Khóa (bỏ qua dòng đang bị khóa) tối đa limit đơn COMPLETED/CANCELLED tạo trước createdBefore, theo id tăng dần
+     */
+    List<Long> lockArchivableOrderIds(LocalDateTime createdBefore, int limit);
+
+    /**
+     * Chép đơn, dòng hàng, payment, shipment sang các bảng *_archive rồi xóa khỏi bảng chính (gọi trong transaction)
+     *
+     * @return số đơn đã chuyển
+     */
+    int moveToArchive(List<Long> orderIds, LocalDateTime archivedAt);
+
+    record ArchivedOrder(
+            Long id,
+            Long userId,
+            String userEmail,
+            BigDecimal totalAmount,
+            OrderStatus status,
+            String orderType,
+            Long couponId,
+            String couponCode,
+            BigDecimal couponDiscountValue,
+            Long sharedCartId,
+            String sharedCartTitle,
+            LocalDateTime createdAt,
+            List<ArchivedItem> items,
+            ArchivedPayment payment
+    ) {}
+
+    record ArchivedItem(Long id, Long productId, String productName, String productSlug, String productThumbnail,
+                        Integer qty, BigDecimal unitPrice) {}
+
+    record ArchivedPayment(Long id, BigDecimal amount, String paymentMethod, String status, LocalDateTime paidAt) {}
+
+    Optional<ArchivedOrder> findArchivedOrder(Long orderId);
+}
@@ -0,0 +1,240 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    // Quét theo index created_at, thứ tự (created_at, id) có sẵn trong index nên MySQL không phải sort.
+    // %1$s/%2$s/%3$s = bảng đơn / dòng hàng / payment (bảng chính hoặc bảng lưu trữ)
+    private static final String EXPORT_ROWS_SQL = """
+        SELECT o.id, o.created_at, o.status, o.order_type, o.user_id, u.email, o.total_amount,
+               c.code, p.payment_method, p.status,
+               oi.product_id, pr.name, oi.qty, oi.unit_price
+        FROM %1$s o
+        LEFT JOIN users u ON u.id = o.user_id
+        LEFT JOIN coupons c ON c.id = o.coupon_id
+        LEFT JOIN %3$s p ON p.order_id = o.id
+        LEFT JOIN %2$s oi ON oi.order_id = o.id
+        LEFT JOIN products pr ON pr.id = oi.product_id
+        WHERE o.created_at >= ? AND o.created_at < ?
+        ORDER BY o.created_at, o.id
+    """;
+
+    private static final String LOCK_ARCHIVABLE_SQL = """
+        SELECT id FROM orders
+        WHERE status IN ('COMPLETED', 'CANCELLED') AND created_at < ?
+        ORDER BY id
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+    """;
+
+    private static final String ARCHIVE_ORDERS_SQL = """
+        INSERT INTO orders_archive (id, user_id, total_amount, status, order_type, coupon_id, shared_cart_id,
+                                    vnp_txn_ref, created_at, archived_at)
+        SELECT id, user_id, total_amount, status, order_type, coupon_id, shared_cart_id, vnp_txn_ref, created_at, ?
+        FROM orders WHERE id IN (%s)
+    """;
+
+    private static final String ARCHIVE_ITEMS_SQL = """
+        INSERT INTO order_items_archive (id, order_id, product_id, qty, unit_price)
+        SELECT id, order_id, product_id, qty, unit_price FROM order_items WHERE order_id IN (%s)
+    """;
+
+    private static final String ARCHIVE_PAYMENTS_SQL = """
+        INSERT INTO payments_archive (id, order_id, amount, payment_method, status, paid_at)
+        SELECT id, order_id, amount, payment_method, status, paid_at FROM payments WHERE order_id IN (%s)
+    """;
+
+    private static final String ARCHIVE_SHIPMENTS_SQL = """
+        INSERT INTO shipments_archive (id, order_id, carrier, tracking_number, shipped_at, delivered_at)
+        SELECT id, order_id, carrier, tracking_number, shipped_at, delivered_at FROM shipments WHERE order_id IN (%s)
+    """;
+
+    private static final String ARCHIVED_ORDER_SQL = """
+        SELECT o.id, o.user_id, u.email, o.total_amount, o.status, o.order_type,
+               o.coupon_id, c.code, c.discount_value, o.shared_cart_id, sc.title, o.created_at
+        FROM orders_archive o
+        LEFT JOIN users u ON u.id = o.user_id
+        LEFT JOIN coupons c ON c.id = o.coupon_id
+        LEFT JOIN shared_carts sc ON sc.id = o.shared_cart_id
+        WHERE o.id = ?
+    """;
+
+    private static final String ARCHIVED_ITEMS_SQL = """
+        SELECT oi.id, oi.product_id, pr.name, pr.slug,
+               (SELECT pi.url FROM product_images pi WHERE pi.product_id = oi.product_id ORDER BY pi.id LIMIT 1),
+               oi.qty, oi.unit_price
+        FROM order_items_archive oi
+        LEFT JOIN products pr ON pr.id = oi.product_id
+        WHERE oi.order_id = ?
+        ORDER BY oi.id
+    """;
+
+    private static final String ARCHIVED_PAYMENT_SQL = """
+        SELECT id, amount, payment_method, status, paid_at
+        FROM payments_archive WHERE order_id = ? ORDER BY id LIMIT 1
+    """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<OrderRow> findOrderRows(Specification<Order> spec, Pageable pageable, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderRow> query = cb.createQuery(OrderRow.class);
+        Root<Order> root = query.from(Order.class);
+
+        query.select(cb.construct(OrderRow.class,
+                root.get("id"),
+                root.get("totalAmount"),
+                root.get("status"),
+                root.get("orderType"),
+                root.get("createdAt")));
+
+        Predicate predicate = spec != null ? spec.toPredicate(root, query, cb) : null;
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        }
+
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public void streamExportRows(LocalDateTime fromInclusive, LocalDateTime toExclusive, Consumer<OrderExportRow> consumer) {
+        streamExportRows(EXPORT_ROWS_SQL.formatted("orders", "order_items", "payments"), fromInclusive, toExclusive, consumer);
+        streamExportRows(EXPORT_ROWS_SQL.formatted("orders_archive", "order_items_archive", "payments_archive"),
+                fromInclusive, toExclusive, consumer);
+    }
+
+    private void streamExportRows(String sql, LocalDateTime fromInclusive, LocalDateTime toExclusive,
+                                  Consumer<OrderExportRow> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J: Integer.MIN_VALUE = đọc từng dòng từ server thay vì nạp cả result set vào heap
+            ps.setFetchSize(Integer.MIN_VALUE);
+            ps.setTimestamp(1, Timestamp.valueOf(fromInclusive));
+            ps.setTimestamp(2, Timestamp.valueOf(toExclusive));
+            return ps;
+        }, rs -> {
+            Timestamp createdAt = rs.getTimestamp(2);
+            consumer.accept(new OrderExportRow(
+                    rs.getLong(1),
+                    createdAt != null ? createdAt.toLocalDateTime() : null,
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getObject(5, Long.class),
+                    rs.getString(6),
+                    rs.getBigDecimal(7),
+                    rs.getString(8),
+                    rs.getString(9),
+                    rs.getString(10),
+                    rs.getObject(11, Long.class),
+                    rs.getString(12),
+                    rs.getObject(13, Integer.class),
+                    rs.getBigDecimal(14)));
+        });
+    }
+
+    @Override
+    public List<Long> lockArchivableOrderIds(LocalDateTime createdBefore, int limit) {
+        return jdbcTemplate.queryForList(LOCK_ARCHIVABLE_SQL, Long.class, Timestamp.valueOf(createdBefore), limit);
+    }
+
+    @Override
+    public int moveToArchive(List<Long> orderIds, LocalDateTime archivedAt) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        String in = String.join(",", Collections.nCopies(orderIds.size(), "?"));
+        Object[] ids = orderIds.toArray();
+
+        Object[] orderArgs = new Object[ids.length + 1];
+        orderArgs[0] = Timestamp.valueOf(archivedAt);
+        System.arraycopy(ids, 0, orderArgs, 1, ids.length);
+
+        int moved = jdbcTemplate.update(ARCHIVE_ORDERS_SQL.formatted(in), orderArgs);
+        jdbcTemplate.update(ARCHIVE_ITEMS_SQL.formatted(in), ids);
+        jdbcTemplate.update(ARCHIVE_PAYMENTS_SQL.formatted(in), ids);
+        jdbcTemplate.update(ARCHIVE_SHIPMENTS_SQL.formatted(in), ids);
+
+        // Xóa bảng con trước vì có khóa ngoại tới orders
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (" + in + ")", ids);
+        jdbcTemplate.update("DELETE FROM payments WHERE order_id IN (" + in + ")", ids);
+        jdbcTemplate.update("DELETE FROM shipments WHERE order_id IN (" + in + ")", ids);
+        jdbcTemplate.update("DELETE FROM orders WHERE id IN (" + in + ")", ids);
+        return moved;
+    }
+
+    @Override
+    public Optional<ArchivedOrder> findArchivedOrder(Long orderId) {
+        List<Object[]> orders = jdbcTemplate.query(ARCHIVED_ORDER_SQL, (rs, i) -> new Object[]{
+                rs.getLong(1), rs.getObject(2, Long.class), rs.getString(3), rs.getBigDecimal(4), rs.getString(5),
+                rs.getString(6), rs.getObject(7, Long.class), rs.getString(8), rs.getBigDecimal(9),
+                rs.getObject(10, Long.class), rs.getString(11), rs.getTimestamp(12)
+        }, orderId);
+        if (orders.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] order = orders.get(0);
+
+        List<ArchivedItem> items = jdbcTemplate.query(ARCHIVED_ITEMS_SQL, (rs, i) -> new ArchivedItem(
+                rs.getLong(1), rs.getObject(2, Long.class), rs.getString(3), rs.getString(4), rs.getString(5),
+                rs.getObject(6, Integer.class), rs.getBigDecimal(7)), orderId);
+
+        ArchivedPayment payment = jdbcTemplate.query(ARCHIVED_PAYMENT_SQL, (rs, i) -> new ArchivedPayment(
+                rs.getLong(1), rs.getBigDecimal(2), rs.getString(3), rs.getString(4),
+                toLocalDateTime(rs.getTimestamp(5))), orderId).stream().findFirst().orElse(null);
+
+        return Optional.of(new ArchivedOrder(
+                (Long) order[0],
+                (Long) order[1],
+                (String) order[2],
+                (BigDecimal) order[3],
+                order[4] != null ? OrderStatus.valueOf((String) order[4]) : null,
+                (String) order[5],
+                (Long) order[6],
+                (String) order[7],
+                (BigDecimal) order[8],
+                (Long) order[9],
+                (String) order[10],
+                toLocalDateTime((Timestamp) order[11]),
+                items,
+                payment));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
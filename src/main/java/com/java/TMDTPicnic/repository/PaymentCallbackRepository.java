@@ -0,0 +1,48 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.PaymentCallback;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PaymentCallbackRepository extends JpaRepository<PaymentCallback, Long> {
+
+    // Callback thành công đã ghi nhận nhưng chưa xử lý xong (ví dụ do server dừng giữa chừng),
+    // bỏ qua callback đã FAILED và callback vừa được lấy ra sau claimedBefore
+    @Query("SELECT c FROM PaymentCallback c " +
+           "WHERE c.processedAt IS NULL AND c.failedAt IS NULL AND c.responseCode = '00' AND c.receivedAt < :before " +
+           "AND (c.claimedAt IS NULL OR c.claimedAt < :claimedBefore) " +
+           "ORDER BY c.id")
+    List<PaymentCallback> findUnprocessedSuccess(@Param("before") LocalDateTime before,
+                                                 @Param("claimedBefore") LocalDateTime claimedBefore);
+
+    // Lấy một callback ra xử lý; trả 0 nếu đã xong, đã FAILED hoặc đang được xử lý (claim còn hạn)
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentCallback c SET c.claimedAt = :now, c.attempts = COALESCE(c.attempts, 0) + 1 " +
+           "WHERE c.id = :id AND c.processedAt IS NULL AND c.failedAt IS NULL " +
+           "AND (c.claimedAt IS NULL OR c.claimedAt < :claimedBefore)")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("claimedBefore") LocalDateTime claimedBefore);
+
+    // Thread pool từ chối: trả lại lượt đã lấy để lần quét sau lấy lại ngay
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentCallback c SET c.claimedAt = NULL, c.attempts = c.attempts - 1 WHERE c.id = :id")
+    void releaseClaim(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentCallback c SET c.failedAt = :failedAt " +
+           "WHERE c.processedAt IS NULL AND c.failedAt IS NULL AND c.responseCode = '00' AND c.attempts >= :maxAttempts")
+    int markFailedOverAttempts(@Param("maxAttempts") int maxAttempts, @Param("failedAt") LocalDateTime failedAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentCallback c SET c.processedAt = :processedAt WHERE c.id = :id")
+    void markProcessed(@Param("id") Long id, @Param("processedAt") LocalDateTime processedAt);
+}
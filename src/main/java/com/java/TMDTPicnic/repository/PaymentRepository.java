@@ -1,11 +1,27 @@
 package com.java.TMDTPicnic.repository;
 
 import com.java.TMDTPicnic.entity.Payment;
+import com.java.TMDTPicnic.enums.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByOrderId(Long orderId);
+
+    // [orderId, paymentMethod] của nhiều đơn một lúc
+    @Query("SELECT p.order.id, p.paymentMethod FROM Payment p WHERE p.order.id IN :orderIds ORDER BY p.id")
+    List<Object[]> findPaymentMethodsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :newStatus WHERE p.order.id IN :orderIds AND p.status = :currentStatus")
+    int updateStatusByOrderIdsAndStatus(@Param("orderIds") Collection<Long> orderIds,
+                                        @Param("currentStatus") PaymentStatus currentStatus,
+                                        @Param("newStatus") PaymentStatus newStatus);
 }
@@ -5,17 +5,20 @@ import com.java.TMDTPicnic.dto.response.TopProductResponse;
 import com.java.TMDTPicnic.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     boolean existsBySlug(String slug);
     Optional<Product> findBySlug(String slug);
     List<Product> findByIsFeaturedTrue();
@@ -26,6 +29,11 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> findByCategoryId(Long categoryId, Pageable pageable);
     Page<Product> findByCategoryIdIn(List<Long> categoryIds, Pageable pageable);
 
+    // Khóa các sản phẩm trong một câu truy vấn, theo id tăng dần để các đơn đồng thời không deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
 
     @Query("""
         SELECT new com.java.TMDTPicnic.dto.response.TopCategoryResponse(
@@ -49,4 +57,51 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
         ORDER BY p.soldQuantity DESC
     """)
     List<TopProductResponse> getTopProducts(Pageable pageable);
+
+    // Một lần quét products (kèm điểm trung bình review hiển thị), tổng đếm qua window function.
+    // Mỗi dòng: [id, name, sold_quantity, doanh thu ước tính, avg_rating, top_rank, low_rank,
+    //            active, inactive, low_stock, high_rated, low_rated].
+    // Giữ các dòng trong top điểm cao (> 4) / điểm thấp (< 3), và luôn giữ dòng đầu để có số tổng.
+    @Query(value = """
+        SELECT id, name, sold_quantity, revenue, avg_rating, top_rank, low_rank,
+               active_count, inactive_count, low_stock_count, high_rated_count, low_rated_count
+        FROM (
+            SELECT p.id, p.name, COALESCE(p.sold_quantity, 0) AS sold_quantity,
+                   COALESCE(p.sold_quantity, 0) * COALESCE(p.price, 0) AS revenue,
+                   r.avg_rating,
+                   ROW_NUMBER() OVER (ORDER BY p.id) AS row_no,
+                   CASE WHEN r.avg_rating > 4
+                        THEN ROW_NUMBER() OVER (PARTITION BY r.avg_rating > 4 ORDER BY r.avg_rating DESC, p.id)
+                   END AS top_rank,
+                   CASE WHEN r.avg_rating < 3
+                        THEN ROW_NUMBER() OVER (PARTITION BY r.avg_rating < 3 ORDER BY r.avg_rating, p.id)
+                   END AS low_rank,
+                   SUM(p.is_active = 1) OVER () AS active_count,
+                   SUM(p.is_active IS NULL OR p.is_active = 0) OVER () AS inactive_count,
+                   SUM(COALESCE(p.stock_quantity, 0) <= :lowStockThreshold) OVER () AS low_stock_count,
+                   SUM(r.avg_rating > 4) OVER () AS high_rated_count,
+                   SUM(r.avg_rating < 3) OVER () AS low_rated_count
+            FROM products p
+            LEFT JOIN (
+                SELECT product_id, AVG(rating) AS avg_rating
+                FROM reviews
+                WHERE is_hidden = 0
+                GROUP BY product_id
+            ) r ON r.product_id = p.id
+        ) ranked
+        WHERE row_no = 1 OR top_rank <= :limit OR low_rank <= :limit
+    """, nativeQuery = true)
+    List<Object[]> getProductStatsRaw(@Param("lowStockThreshold") int lowStockThreshold, @Param("limit") int limit);
+
+    // Cảnh báo dashboard: sản phẩm đang bán có tồn kho <= threshold (idx_products_active_stock)
+    @Query(value = """
+        SELECT COUNT(*)
+        FROM products
+        WHERE is_active = TRUE AND (stock_quantity IS NULL OR stock_quantity <= :threshold)
+    """, nativeQuery = true)
+    long countActiveLowStock(@Param("threshold") int threshold);
+
+    // [id, name, price, categoryName] cho bảng xếp hạng sản phẩm thịnh hành
+    @Query("SELECT p.id, p.name, p.price, c.name FROM Product p LEFT JOIN p.category c WHERE p.id IN :ids")
+    List<Object[]> findRankingInfoRaw(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,33 @@
+package com.java.TMDTPicnic.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ProductRepositoryCustom {
+
+    /**
+     * Trừ tồn kho có điều kiện cho nhiều sản phẩm trong một lần gửi batch:
+     * UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?
+     *
+     * @param quantities productId -> số lượng cần trừ
+     * @return danh sách productId không đủ tồn kho (rỗng nếu tất cả đều trừ thành công)
+     */
+    List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities);
+
+    /**
+     * Cộng lại tồn kho (hoàn kho) cho nhiều sản phẩm trong một lần gửi batch
+     */
+    void incrementStock(Map<Long, Integer> quantities);
+
+    /**
+     * Cộng dồn số lượng đã bán (có thể âm khi hủy đơn) cho nhiều sản phẩm trong một lần gửi batch
+     */
+    void addSoldQuantity(Map<Long, Long> deltas);
+
+    /**
+     * Tính lại sold_quantity của toàn bộ sản phẩm từ order_items của các đơn đã thanh toán
+     *
+     * @return số sản phẩm được cập nhật
+     */
+    int rebuildSoldQuantity();
+}
@@ -0,0 +1,101 @@
+package com.java.TMDTPicnic.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RequiredArgsConstructor
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String INCREMENT_STOCK_SQL =
+            "UPDATE products SET stock_quantity = COALESCE(stock_quantity, 0) + ? WHERE id = ?";
+
+    private static final String ADD_SOLD_QUANTITY_SQL =
+            "UPDATE products SET sold_quantity = GREATEST(COALESCE(sold_quantity, 0) + ?, 0) WHERE id = ?";
+
+    private static final String REBUILD_SOLD_QUANTITY_SQL = """
+        UPDATE products p
+        LEFT JOIN (
+            SELECT product_id, SUM(qty) AS sold
+            FROM (
+                SELECT oi.product_id, oi.qty
+                FROM order_items oi
+                JOIN orders o ON o.id = oi.order_id
+                WHERE o.status IN ('PAID', 'SHIPPED', 'COMPLETED')
+                UNION ALL
+                SELECT oi.product_id, oi.qty
+                FROM order_items_archive oi
+                JOIN orders_archive o ON o.id = oi.order_id
+                WHERE o.status = 'COMPLETED'
+            ) sold_items
+            GROUP BY product_id
+        ) s ON s.product_id = p.id
+        SET p.sold_quantity = COALESCE(s.sold, 0)
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+
+        // Sắp xếp theo id tăng dần để các giao dịch đồng thời luôn khóa dòng theo cùng một thứ tự
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        })[0];
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            if (updated[i] < 1) {
+                failed.add(lines.get(i).getKey());
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public void incrementStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+
+        jdbcTemplate.batchUpdate(INCREMENT_STOCK_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+    }
+
+    @Override
+    public void addSoldQuantity(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Long>> lines = new ArrayList<>(new TreeMap<>(deltas).entrySet());
+
+        jdbcTemplate.batchUpdate(ADD_SOLD_QUANTITY_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setLong(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+    }
+
+    @Override
+    public int rebuildSoldQuantity() {
+        return jdbcTemplate.update(REBUILD_SOLD_QUANTITY_SQL);
+    }
+}
@@ -0,0 +1,45 @@
+package com.java.TMDTPicnic.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Ghi nhận các sự kiện outbox SalesCounter đã cộng vào sold_quantity (sales_counter_applied_events)
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesCounterRepository {
+
+    // Sự kiện bán/hủy chưa xử lý: số liệu của chúng đã có trong lần tính lại từ order_items
+    private static final String MARK_PENDING_APPLIED_SQL = """
+        INSERT IGNORE INTO sales_counter_applied_events (event_id, applied_at)
+        SELECT id, ?
+        FROM order_events
+        WHERE status = 'PENDING' AND event_type IN ('ORDER_PAID', 'ORDER_CANCELLED')
+    """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi nhận sự kiện đã cộng
+     *
+     * @return false nếu sự kiện đã được ghi nhận trước đó
+     */
+    public boolean markApplied(Long eventId, LocalDateTime appliedAt) {
+        return jdbcTemplate.update("INSERT IGNORE INTO sales_counter_applied_events (event_id, applied_at) VALUES (?, ?)",
+                eventId, Timestamp.valueOf(appliedAt)) > 0;
+    }
+
+    public int markPendingEventsApplied(LocalDateTime appliedAt) {
+        return jdbcTemplate.update(MARK_PENDING_APPLIED_SQL, Timestamp.valueOf(appliedAt));
+    }
+
+    public int purgeAppliedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM sales_counter_applied_events WHERE applied_at < ?",
+                Timestamp.valueOf(before));
+    }
+}
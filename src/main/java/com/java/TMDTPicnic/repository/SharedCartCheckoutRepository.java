@@ -0,0 +1,33 @@
+package com.java.TMDTPicnic.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Ghi nhận các sự kiện outbox SharedCartCheckoutHandler đã xử lý (shared_cart_checkout_applied_events)
+ */
+@Repository
+@RequiredArgsConstructor
+public class SharedCartCheckoutRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Ghi nhận sự kiện đã xử lý, trong transaction của handler
+     *
+     * @return false nếu sự kiện đã được xử lý trước đó
+     */
+    public boolean markApplied(Long eventId, LocalDateTime appliedAt) {
+        return jdbcTemplate.update("INSERT IGNORE INTO shared_cart_checkout_applied_events (event_id, applied_at) VALUES (?, ?)",
+                eventId, Timestamp.valueOf(appliedAt)) > 0;
+    }
+
+    public int purgeAppliedBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM shared_cart_checkout_applied_events WHERE applied_at < ?",
+                Timestamp.valueOf(before));
+    }
+}
@@ -2,6 +2,9 @@ package com.java.TMDTPicnic.repository;
 
 import com.java.TMDTPicnic.entity.SharedCartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +15,19 @@ public interface SharedCartItemRepository extends JpaRepository<SharedCartItem,
     Optional<SharedCartItem> findBySharedCartIdAndProductId(Long sharedCartId, Long productId);
 
     void deleteBySharedCartIdAndProductId(Long sharedCartId, Long productId);
+
+    @Modifying
+    @Query("DELETE FROM SharedCartItem i WHERE i.sharedCart.id = :sharedCartId")
+    int deleteAllBySharedCartId(@Param("sharedCartId") Long sharedCartId);
+
+    // Sản phẩm có nhiều lượt trong các giỏ chung nhất: [product_id, name, tổng số lượng, tổng tiền theo giá lúc thêm]
+    @Query(value = """
+        SELECT i.product_id, p.name, SUM(i.quantity) AS units, COALESCE(SUM(i.quantity * i.price_at_add), 0)
+        FROM shared_cart_items i
+        JOIN products p ON p.id = i.product_id
+        GROUP BY i.product_id, p.name
+        ORDER BY units DESC, i.product_id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Object[]> getTopProductsRaw(@Param("limit") int limit);
 }
\ No newline at end of file
@@ -2,10 +2,12 @@ package com.java.TMDTPicnic.repository;
 
 import com.java.TMDTPicnic.entity.SharedCart;
 import com.java.TMDTPicnic.entity.User;
+import com.java.TMDTPicnic.enums.SharedCartStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface SharedCartRepository extends JpaRepository<SharedCart, Long> {
@@ -23,4 +25,18 @@ public interface SharedCartRepository extends JpaRepository<SharedCart, Long> {
             "LEFT JOIN SharedCartParticipant scp ON scp.sharedCart = sc " +
             "WHERE sc.owner = :user OR scp.user = :user")
     List<SharedCart> findByOwnerOrParticipant(@Param("user") User user);
-}
\ No newline at end of file
+
+    // Một lần quét: [đang mở, đã đóng (COMPLETED/CANCELLED), đang mở và hết hạn trong [now, expiringBefore]]
+    @Query(value = """
+        SELECT
+            COALESCE(SUM(status = 'OPEN'), 0),
+            COALESCE(SUM(status IN ('COMPLETED', 'CANCELLED')), 0),
+            COALESCE(SUM(status = 'OPEN' AND expires_at BETWEEN :now AND :expiringBefore), 0)
+        FROM shared_carts
+    """, nativeQuery = true)
+    List<Object[]> getSharedCartStatsRaw(@Param("now") LocalDateTime now,
+                                         @Param("expiringBefore") LocalDateTime expiringBefore);
+
+    // Cảnh báo dashboard: giỏ theo trạng thái hết hạn trong [from, to] (idx_shared_carts_status_expires)
+    long countByStatusAndExpiresAtBetween(SharedCartStatus status, LocalDateTime from, LocalDateTime to);
+}
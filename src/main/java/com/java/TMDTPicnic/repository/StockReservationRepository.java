@@ -0,0 +1,34 @@
+package com.java.TMDTPicnic.repository;
+
+import com.java.TMDTPicnic.entity.StockReservation;
+import com.java.TMDTPicnic.enums.ReservationStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Khóa các dòng giữ hàng của đơn để callback thanh toán và job giải phóng không chạy chồng lên nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r " +
+           "WHERE r.orderId IN :orderIds AND r.status = :status " +
+           "ORDER BY r.orderId, r.productId")
+    List<StockReservation> findByOrderIdsAndStatusForUpdate(@Param("orderIds") Collection<Long> orderIds,
+                                                           @Param("status") ReservationStatus status);
+
+    // Mọi dòng giữ hàng của đơn (mọi trạng thái), khóa như trên
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId ORDER BY r.productId")
+    List<StockReservation> findByOrderIdForUpdate(@Param("orderId") Long orderId);
+
+    // Hạn giữ hàng sớm nhất của từng đơn còn ACTIVE (nạp lại hàng đợi khi khởi động)
+    @Query("SELECT r.orderId, MIN(r.expiresAt) FROM StockReservation r " +
+           "WHERE r.status = com.java.TMDTPicnic.enums.ReservationStatus.ACTIVE " +
+           "GROUP BY r.orderId")
+    List<Object[]> findActiveOrderExpiries();
+}
@@ -6,7 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,17 +16,23 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String userName);
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
-    // Thống kê số user mới mỗi ngày với date range
+
+    // Một lần quét users: [tổng user, user tạo trong khoảng, user có đặt đơn trong khoảng].
+    // User hoạt động tính theo đơn (kể cả đơn đã lưu trữ) vì last_login chỉ giữ lần đăng nhập gần nhất,
+    // khoảng ngày trong quá khứ sẽ bị đếm thiếu
     @Query(value = """
-        SELECT 
-            DATE(created_at) as date,
-            COUNT(*) as newUsers,
-            0 as returningUsers
+        SELECT
+            COUNT(*),
+            COALESCE(SUM(created_at >= :fromInclusive AND created_at < :toExclusive), 0),
+            (SELECT COUNT(DISTINCT o.user_id)
+             FROM (SELECT user_id FROM orders
+                   WHERE created_at >= :fromInclusive AND created_at < :toExclusive
+                   UNION ALL
+                   SELECT user_id FROM orders_archive
+                   WHERE created_at >= :fromInclusive AND created_at < :toExclusive) o)
         FROM users
-        WHERE DATE(created_at) BETWEEN :fromDate AND :toDate
-        GROUP BY DATE(created_at)
-        ORDER BY DATE(created_at)
     """, nativeQuery = true)
-    List<Object[]> getUserStatsByDayRawWithDateRange(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+    List<Object[]> getUserKpiRaw(@Param("fromInclusive") LocalDateTime fromInclusive,
+                                 @Param("toExclusive") LocalDateTime toExclusive);
 
 }
@@ -18,6 +18,7 @@ import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import jakarta.mail.MessagingException;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.NonFinal;
 import org.springframework.beans.factory.annotation.Value;
@@ -40,6 +41,7 @@ public class AuthenticationService {
     private final UserRepository userRepository;
     private final InvalidatedTokenRepository invalidatedTokenRepository;
     private final EmailService emailService;
+    private final DashboardRollupService dashboardRollupService;
     private final ConcurrentHashMap<String, AbstractMap.SimpleEntry<String, LocalDateTime>> verificationCodes = new ConcurrentHashMap<>();
 
     public final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
@@ -199,6 +201,7 @@ public class AuthenticationService {
         verificationCodes.put(request.getEmail(), new AbstractMap.SimpleEntry<>(code, expiry));
     }
 
+    @Transactional
     public void register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
             throw new AppException(ErrorCode.EMAIL_ALREADY_EXISTS);
@@ -220,6 +223,7 @@ public class AuthenticationService {
                 .build();
 
         userRepository.save(user);
+        dashboardRollupService.recordNewUser(user.getCreatedAt());
     }
 
 }
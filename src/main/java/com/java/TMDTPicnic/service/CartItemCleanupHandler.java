@@ -0,0 +1,40 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.repository.CartItemRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Xóa các CartItem đã được đặt (đơn GROUP) sau khi đơn được tạo
+ */
+@Component
+@RequiredArgsConstructor
+public class CartItemCleanupHandler implements OrderEventHandler {
+
+    private final CartItemRepository cartItemRepository;
+
+    @Override
+    public Set<OrderEventType> supportedTypes() {
+        return Set.of(OrderEventType.ORDER_CREATED);
+    }
+
+    @Override
+    @Transactional
+    public void handle(OrderEvent event, Map<String, Object> payload) {
+        if (!(payload.get("cartItemIds") instanceof List<?> ids) || ids.isEmpty()) {
+            return;
+        }
+        List<Long> cartItemIds = ids.stream()
+                .map(id -> ((Number) id).longValue())
+                .toList();
+        // Xóa lại lần nữa khi sự kiện được giao lặp cũng không sao
+        cartItemRepository.deleteAllByIdInBatch(cartItemIds);
+    }
+}
@@ -0,0 +1,102 @@
+package com.java.TMDTPicnic.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Đo thời gian từng bước của checkout (Micrometer, xuất qua /actuator/prometheus):
+ * - checkout.phase{phase, orderType, paymentMethod}: thời gian từng bước
+ * - checkout.duration{orderType, paymentMethod, outcome}: tổng thời gian của pipeline
+ * - checkout.failures{reason, orderType, paymentMethod}: số checkout lỗi, reason = bước bị lỗi
+ */
+@Component
+@RequiredArgsConstructor
+public class CheckoutMetrics {
+
+    public static final String USER_LOAD = "user_load";
+    public static final String FLASH_SALE_GATE = "flash_sale_gate";
+    public static final String PRODUCT_LOAD = "product_load";
+    public static final String COUPON_APPLY = "coupon_apply";
+    public static final String STOCK_CHECK = "stock_check";
+    public static final String ORDER_PERSIST = "order_persist";
+    public static final String ITEM_PERSIST = "item_persist";
+    public static final String PAYMENT_PERSIST = "payment_persist";
+    public static final String PAYMENT_INITIATION = "payment_initiation";
+    public static final String VNPAY_URL_BUILD = "vnpay_url_build";
+
+    private final MeterRegistry meterRegistry;
+
+    @FunctionalInterface
+    public interface PhaseCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * Thông tin của một lần checkout để gắn tag cho các metric
+     */
+    public final class Checkout {
+        private final String orderType;
+        private final String paymentMethod;
+        private final Timer.Sample sample;
+        private String failedPhase;
+
+        private Checkout(String orderType, String paymentMethod) {
+            this.orderType = orderType != null ? orderType : "UNKNOWN";
+            this.paymentMethod = paymentMethod != null ? paymentMethod : "UNKNOWN";
+            this.sample = Timer.start(meterRegistry);
+        }
+
+        public <T, E extends Exception> T phase(String phase, PhaseCall<T, E> call) throws E {
+            Timer.Sample phaseSample = Timer.start(meterRegistry);
+            try {
+                return call.call();
+            } catch (Exception e) {
+                // Bước lồng trong nhau: giữ bước trong cùng (nơi phát sinh lỗi)
+                if (failedPhase == null) {
+                    failedPhase = phase;
+                }
+                throw e;
+            } finally {
+                phaseSample.stop(Timer.builder("checkout.phase")
+                        .description("Thời gian từng bước checkout")
+                        .tag("phase", phase)
+                        .tag("orderType", orderType)
+                        .tag("paymentMethod", paymentMethod)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+        }
+
+        public void succeeded() {
+            stop("success");
+        }
+
+        public void failed() {
+            Counter.builder("checkout.failures")
+                    .description("Số checkout bị lỗi theo bước gây lỗi")
+                    .tag("reason", failedPhase != null ? failedPhase : "other")
+                    .tag("orderType", orderType)
+                    .tag("paymentMethod", paymentMethod)
+                    .register(meterRegistry)
+                    .increment();
+            stop("failure");
+        }
+
+        private void stop(String outcome) {
+            sample.stop(Timer.builder("checkout.duration")
+                    .description("Tổng thời gian pipeline checkout")
+                    .tag("orderType", orderType)
+                    .tag("paymentMethod", paymentMethod)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    public Checkout start(String orderType, String paymentMethod) {
+        return new Checkout(orderType, paymentMethod);
+    }
+}
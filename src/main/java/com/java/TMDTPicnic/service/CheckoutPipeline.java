@@ -0,0 +1,239 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.*;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.enums.PaymentMethod;
+import com.java.TMDTPicnic.enums.PaymentStatus;
+import com.java.TMDTPicnic.enums.SharedCartStatus;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.SharedCartRepository;
+import com.java.TMDTPicnic.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Luồng checkout dùng chung cho đơn SINGLE, GROUP và SHARED_CART.
+ * Token flash sale được người gọi lấy trước khi mở transaction (FlashSaleGate.admit) và truyền vào Command.
+ * Các bước: resolve dòng hàng -> gắn token flash sale -> nạp + khóa sản phẩm -> tính tiền -> coupon -> trừ kho -> lưu đơn -> thanh toán.
+ * Toàn bộ sản phẩm được nạp bằng MỘT câu SELECT ... FOR UPDATE theo id tăng dần.
+ */
+@Service
+@RequiredArgsConstructor
+public class CheckoutPipeline {
+
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PaymentRepository paymentRepository;
+    private final SharedCartRepository sharedCartRepository;
+    private final CouponService couponService;
+    private final InventoryService inventoryService;
+    private final StockReservationService stockReservationService;
+    private final OrderEventService orderEventService;
+    private final VNPayService vnPayService;
+    private final FlashSaleGate flashSaleGate;
+    private final CheckoutMetrics checkoutMetrics;
+
+    /**
+     * Một dòng hàng cần đặt. unitPrice null -> lấy giá hiện tại của sản phẩm
+     */
+    public record Line(Long productId, int qty, BigDecimal unitPrice) {}
+
+    @Builder
+    public record Command(
+            Long userId,
+            String orderType,               // SINGLE, GROUP hoặc SHARED_CART
+            List<Line> lines,
+            String couponCode,
+            PaymentMethod paymentMethod,
+            String ipAddress,
+            SharedCart sharedCart,          // chỉ với SHARED_CART
+            List<Long> cartItemIds,         // CartItem sẽ bị xóa sau khi tạo đơn (GROUP)
+            FlashSaleGate.Admission admission // token flash sale đã lấy trước transaction, null = không lấy
+    ) {}
+
+    /**
+     * Gộp dòng hàng theo sản phẩm, thứ tự id tăng dần
+     */
+    public static Map<Long, Integer> quantities(List<Line> lines) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (Line line : lines) {
+            quantities.merge(line.productId(), line.qty(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * @return URL thanh toán (VNPay) hoặc chuỗi rỗng nếu không cần
+     */
+    @Transactional
+    public String checkout(Command command) throws UnsupportedEncodingException {
+        CheckoutMetrics.Checkout metrics = checkoutMetrics.start(command.orderType(),
+                command.paymentMethod() != null ? command.paymentMethod().name() : null);
+        try {
+            String paymentUrl = run(command, metrics);
+            metrics.succeeded();
+            return paymentUrl;
+        } catch (Exception e) {
+            metrics.failed();
+            throw e;
+        }
+    }
+
+    private String run(Command command, CheckoutMetrics.Checkout metrics) throws UnsupportedEncodingException {
+        // 1. Resolve dòng hàng: gộp theo sản phẩm, TreeMap giữ thứ tự id tăng dần
+        Map<Long, Integer> quantities = quantities(command.lines());
+
+        // 2. Sản phẩm flash sale: token đã lấy trước transaction, gắn vào transaction này để bù trừ khi kết thúc
+        metrics.phase(CheckoutMetrics.FLASH_SALE_GATE, () -> {
+            FlashSaleGate.Admission admission = command.admission() != null
+                    ? command.admission() : flashSaleGate.noAdmission();
+            admission.bindToTransaction(quantities);
+            return null;
+        });
+
+        User user = metrics.phase(CheckoutMetrics.USER_LOAD, () -> userRepository.findById(command.userId())
+                .orElseThrow(() -> new RuntimeException("User not found")));
+
+        // Nạp và khóa toàn bộ sản phẩm trong một câu truy vấn
+        Map<Long, Product> products = metrics.phase(CheckoutMetrics.PRODUCT_LOAD, () -> loadProducts(quantities.keySet()));
+
+        // 3. Tính tiền
+        BigDecimal total = BigDecimal.ZERO;
+        for (Line line : command.lines()) {
+            total = total.add(unitPrice(line, products).multiply(BigDecimal.valueOf(line.qty())));
+        }
+
+        // 4. Dùng mã giảm giá (tăng lượt dùng nguyên tử)
+        CouponService.Redemption redemption = null;
+        BigDecimal finalTotal = total;
+        if (command.couponCode() != null && !command.couponCode().isBlank()) {
+            BigDecimal orderTotal = total;
+            redemption = metrics.phase(CheckoutMetrics.COUPON_APPLY,
+                    () -> couponService.redeem(command.couponCode(), orderTotal));
+            finalTotal = redemption.finalTotal(); // finalTotal = total * giảm giá (nếu có)
+        }
+
+        // 5. Trừ tồn kho nguyên tử cho toàn bộ dòng hàng, thiếu hàng ở bất kỳ dòng nào sẽ rollback cả đơn
+        metrics.phase(CheckoutMetrics.STOCK_CHECK, () -> {
+            inventoryService.decrementStock(quantities);
+            return null;
+        });
+
+        // 6. Lưu Order, OrderItem, Payment và sự kiện ORDER_CREATED
+        Order order = Order.builder()
+                .user(user)
+                .totalAmount(finalTotal)
+                .status(OrderStatus.PENDING)
+                .orderType(command.orderType())
+                .sharedCart(command.sharedCart())
+                .coupon(redemption != null ? redemption.coupon() : null)
+                .createdAt(LocalDateTime.now())
+                .build();
+        CouponService.Redemption usedCoupon = redemption;
+        metrics.phase(CheckoutMetrics.ORDER_PERSIST, () -> {
+            orderRepository.save(order);
+            if (usedCoupon != null) {
+                couponService.recordRedemption(usedCoupon, user, order.getId());
+            }
+            return null;
+        });
+
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (Line line : command.lines()) {
+            orderItems.add(OrderItem.builder()
+                    .order(order)
+                    .product(products.get(line.productId()))
+                    .qty(line.qty())
+                    .unitPrice(unitPrice(line, products))
+                    .build());
+        }
+        metrics.phase(CheckoutMetrics.ITEM_PERSIST, () -> orderItemRepository.saveAll(orderItems));
+
+        Payment payment = Payment.builder()
+                .order(order)
+                .amount(finalTotal)
+                .paymentMethod(command.paymentMethod().name())
+                .status(PaymentStatus.PENDING)
+                .paidAt(null)
+                .build();
+        metrics.phase(CheckoutMetrics.PAYMENT_PERSIST, () -> {
+            paymentRepository.save(payment);
+            orderEventService.publish(OrderEventType.ORDER_CREATED, order, null,
+                    command.cartItemIds() != null && !command.cartItemIds().isEmpty()
+                            ? Map.of("cartItemIds", command.cartItemIds())
+                            : null);
+            return null;
+        });
+
+        // 7. Khởi tạo thanh toán
+        return metrics.phase(CheckoutMetrics.PAYMENT_INITIATION,
+                () -> initiatePayment(command, order, payment, quantities, metrics));
+    }
+
+    private Map<Long, Product> loadProducts(Set<Long> productIds) {
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllByIdForUpdate(productIds)) {
+            products.put(product.getId(), product);
+        }
+        for (Long productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new RuntimeException("Product not found with id: " + productId);
+            }
+        }
+        return products;
+    }
+
+    private BigDecimal unitPrice(Line line, Map<Long, Product> products) {
+        return line.unitPrice() != null ? line.unitPrice() : products.get(line.productId()).getPrice();
+    }
+
+    private String initiatePayment(Command command, Order order, Payment payment, Map<Long, Integer> quantities,
+                                   CheckoutMetrics.Checkout metrics) throws UnsupportedEncodingException {
+        boolean sharedCartOrder = command.sharedCart() != null;
+
+        if (command.paymentMethod() == PaymentMethod.COD) {
+            // Đơn thường: PAID ngay; giỏ chung: COMPLETED ngay và đóng giỏ
+            order.setStatus(sharedCartOrder ? OrderStatus.COMPLETED : OrderStatus.PAID);
+            orderRepository.save(order);
+
+            payment.setStatus(PaymentStatus.SUCCESS);
+            payment.setPaidAt(LocalDateTime.now());
+            paymentRepository.save(payment);
+
+            if (sharedCartOrder) {
+                // Đóng shared cart ngay; xóa items và gửi thông báo chạy nền qua outbox
+                SharedCart cart = command.sharedCart();
+                cart.setStatus(SharedCartStatus.COMPLETED);
+                sharedCartRepository.save(cart);
+            }
+            orderEventService.publish(OrderEventType.ORDER_PAID, order, OrderStatus.PENDING, null);
+            return ""; // Không cần url thanh toán
+        } else if (command.paymentMethod() == PaymentMethod.VNPAY) {
+            // Giữ hàng có thời hạn, tự hoàn kho nếu không thanh toán kịp
+            stockReservationService.hold(order.getId(), quantities);
+            return metrics.phase(CheckoutMetrics.VNPAY_URL_BUILD,
+                    () -> vnPayService.createPaymentUrl(order.getId(), order.getTotalAmount(), command.ipAddress()));
+        } else if (command.paymentMethod() == PaymentMethod.MOMO) {
+            if (sharedCartOrder) {
+                throw new RuntimeException("MOMO payment method is not yet implemented");
+            }
+            // Xử lý MOMO ở đây (hiện để trống)
+            return "";
+        } else {
+            throw new RuntimeException("Unsupported payment method");
+        }
+    }
+}
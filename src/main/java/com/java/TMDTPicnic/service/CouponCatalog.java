@@ -0,0 +1,112 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Coupon;
+import com.java.TMDTPicnic.repository.CouponRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache định nghĩa mã giảm giá (hiệu lực, mức giảm, giới hạn) theo mã đã chuẩn hóa.
+ * Chỉ lượt dùng (usedCount) là thay đổi liên tục nên không nằm trong cache mà luôn đọc/tăng ở DB.
+ * Được làm mới khi admin tạo/sửa/xóa mã và định kỳ nạp lại (cho trường hợp nhiều instance).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CouponCatalog {
+
+    private final CouponRepository couponRepository;
+    private volatile Map<String, CouponDefinition> definitions = new ConcurrentHashMap<>();
+
+    public record CouponDefinition(
+            Long id,
+            String code,
+            String description,
+            LocalDateTime validFrom,
+            LocalDateTime validTo,
+            BigDecimal discountValue,
+            boolean percent,
+            int usageLimit
+    ) {
+        public boolean isActiveAt(LocalDateTime time) {
+            return !time.isBefore(validFrom) && !time.isAfter(validTo);
+        }
+
+        public BigDecimal discountFor(BigDecimal orderTotal) {
+            if (percent) {
+                return orderTotal
+                        .multiply(discountValue)
+                        .divide(BigDecimal.valueOf(100));
+            }
+            return discountValue;
+        }
+    }
+
+    public static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.coupon-catalog.refresh-interval-ms:60000}",
+            initialDelayString = "${app.coupon-catalog.refresh-interval-ms:60000}")
+    public void reload() {
+        Map<String, CouponDefinition> loaded = new ConcurrentHashMap<>();
+        for (Coupon coupon : couponRepository.findAll()) {
+            if (coupon.getCode() != null) {
+                loaded.put(normalize(coupon.getCode()), toDefinition(coupon));
+            }
+        }
+        definitions = loaded;
+        log.debug("Loaded {} coupon definitions", loaded.size());
+    }
+
+    public Optional<CouponDefinition> find(String code) {
+        String key = normalize(code);
+        if (key == null || key.isEmpty()) {
+            return Optional.empty();
+        }
+        CouponDefinition definition = definitions.get(key);
+        if (definition == null) {
+            // Mã vừa được tạo trên instance khác: nạp từ DB rồi giữ lại
+            definition = couponRepository.findByCode(code.trim()).map(this::toDefinition).orElse(null);
+            if (definition != null) {
+                definitions.put(key, definition);
+            }
+        }
+        return Optional.ofNullable(definition);
+    }
+
+    public void put(Coupon coupon) {
+        definitions.put(normalize(coupon.getCode()), toDefinition(coupon));
+    }
+
+    public void evict(String code) {
+        if (code != null) {
+            definitions.remove(normalize(code));
+        }
+    }
+
+    private CouponDefinition toDefinition(Coupon coupon) {
+        return new CouponDefinition(
+                coupon.getId(),
+                coupon.getCode(),
+                coupon.getDescription(),
+                coupon.getValidFrom(),
+                coupon.getValidTo(),
+                coupon.getDiscountValue(),
+                Boolean.TRUE.equals(coupon.getIsPercent()),
+                coupon.getUsageLimit() != null ? coupon.getUsageLimit() : 0
+        );
+    }
+}
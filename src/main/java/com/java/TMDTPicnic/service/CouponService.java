@@ -8,7 +8,11 @@ import com.java.TMDTPicnic.dto.response.CouponCreateResponse;
 import com.java.TMDTPicnic.dto.response.CouponDTOResponse;
 import com.java.TMDTPicnic.dto.response.CouponPageResponse;
 import com.java.TMDTPicnic.entity.Coupon;
+import com.java.TMDTPicnic.entity.CouponRedemption;
+import com.java.TMDTPicnic.entity.User;
+import com.java.TMDTPicnic.repository.CouponRedemptionRepository;
 import com.java.TMDTPicnic.repository.CouponRepository;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -24,6 +28,8 @@ import java.util.stream.Collectors;
 public class CouponService {
 
     private final CouponRepository couponRepository;
+    private final CouponRedemptionRepository couponRedemptionRepository;
+    private final CouponCatalog couponCatalog;
 
     /**
      * Admin tạo mã giảm giá mới
@@ -45,6 +51,7 @@ public class CouponService {
         coupon.setUsedCount(0);
 
         couponRepository.save(coupon);
+        couponCatalog.put(coupon);
 
         CouponCreateResponse response = new CouponCreateResponse();
         response.setId(coupon.getId());
@@ -55,68 +62,116 @@ public class CouponService {
     }
 
     /**
-     * Người dùng áp dụng mã giảm giá khi thanh toán
+     * Kết quả giữ một lượt dùng mã giảm giá trong transaction checkout
+     */
+    public record Redemption(Coupon coupon, BigDecimal discountAmount, BigDecimal finalTotal) {}
+
+    /**
+     * Xem trước mã giảm giá cho một tổng tiền (không tiêu lượt sử dụng)
      */
     public ApplyCouponResponse applyCoupon(ApplyCouponRequest request) {
-        Optional<Coupon> optionalCoupon = couponRepository.findByCode(request.getCode());
+        Optional<CouponCatalog.CouponDefinition> optionalDefinition = couponCatalog.find(request.getCode());
         ApplyCouponResponse response = new ApplyCouponResponse();
         response.setCode(request.getCode());
 
-        if (optionalCoupon.isEmpty()) {
+        String error = optionalDefinition
+                .map(definition -> unavailableReason(definition, usedCount(definition)))
+                .orElse("Mã giảm giá không tồn tại");
+        if (error != null) {
             response.setValid(false);
-            response.setMessage("Mã giảm giá không tồn tại");
+            response.setMessage(error);
             return response;
         }
 
-        Coupon coupon = optionalCoupon.get();
+        BigDecimal discountAmount = optionalDefinition.get().discountFor(request.getOrderTotal());
+
+        // Trả kết quả
+        response.setValid(true);
+        response.setMessage("Áp dụng mã giảm giá thành công");
+        response.setDiscountAmount(discountAmount);
+        response.setFinalTotal(finalTotal(request.getOrderTotal(), discountAmount));
+
+        return response;
+    }
+
+    /**
+     * Dùng một lượt mã giảm giá khi checkout.
+     * Hiệu lực và mức giảm lấy từ CouponCatalog (không truy vấn DB); lượt dùng được tăng bằng một câu
+     * UPDATE có điều kiện, số dòng bị ảnh hưởng quyết định thành công,
+     * nên các checkout đồng thời không thể vượt quá usageLimit.
+     */
+    @Transactional
+    public Redemption redeem(String code, BigDecimal orderTotal) {
+        CouponCatalog.CouponDefinition definition = couponCatalog.find(code)
+                .orElseThrow(() -> new RuntimeException("Mã giảm giá không tồn tại"));
 
-        // Kiểm tra hiệu lực
         LocalDateTime now = LocalDateTime.now();
-        if (now.isBefore(coupon.getValidFrom()) || now.isAfter(coupon.getValidTo())) {
-            response.setValid(false);
-            response.setMessage("Mã giảm giá đã hết hạn hoặc chưa có hiệu lực");
-            return response;
+        if (!definition.isActiveAt(now)) {
+            throw new RuntimeException("Mã giảm giá đã hết hạn hoặc chưa có hiệu lực");
         }
 
-        // Kiểm tra số lượt sử dụng
-        if (coupon.getUsedCount() >= coupon.getUsageLimit()) {
-            response.setValid(false);
-            response.setMessage("Mã giảm giá đã hết lượt sử dụng");
-            return response;
+        if (couponRepository.incrementUsageIfAvailable(definition.code(), now) == 0) {
+            throw new RuntimeException("Mã giảm giá đã hết lượt sử dụng");
         }
 
-        // Tính toán giảm giá
-        BigDecimal discountAmount;
-        if (coupon.getIsPercent()) {
-            discountAmount = request.getOrderTotal()
-                    .multiply(coupon.getDiscountValue())
-                    .divide(BigDecimal.valueOf(100));
-        } else {
-            discountAmount = coupon.getDiscountValue();
-        }
+        BigDecimal discountAmount = definition.discountFor(orderTotal);
+        return new Redemption(couponRepository.getReferenceById(definition.id()), discountAmount,
+                finalTotal(orderTotal, discountAmount));
+    }
 
-        // Tổng sau khi giảm
-        BigDecimal finalTotal = request.getOrderTotal().subtract(discountAmount);
-        if (finalTotal.compareTo(BigDecimal.ZERO) < 0)
-            finalTotal = BigDecimal.ZERO;
+    /**
+     * Ghi sổ lượt dùng mã cho đơn hàng (cùng transaction với đơn)
+     */
+    @Transactional
+    public void recordRedemption(Redemption redemption, User user, Long orderId) {
+        couponRedemptionRepository.save(CouponRedemption.builder()
+                .coupon(redemption.coupon())
+                .user(user)
+                .orderId(orderId)
+                .discountAmount(redemption.discountAmount())
+                .redeemedAt(LocalDateTime.now())
+                .build());
+    }
 
-        // Cập nhật lượt sử dụng
-        coupon.setUsedCount(coupon.getUsedCount() + 1);
-        couponRepository.save(coupon);
+    private int usedCount(CouponCatalog.CouponDefinition definition) {
+        return couponRepository.findUsedCountById(definition.id()).orElse(0);
+    }
 
-        // Trả kết quả
-        response.setValid(true);
-        response.setMessage("Áp dụng mã giảm giá thành công");
-        response.setDiscountAmount(discountAmount);
-        response.setFinalTotal(finalTotal);
+    private String unavailableReason(CouponCatalog.CouponDefinition definition, int usedCount) {
+        // Kiểm tra hiệu lực
+        if (!definition.isActiveAt(LocalDateTime.now())) {
+            return "Mã giảm giá đã hết hạn hoặc chưa có hiệu lực";
+        }
 
-        return response;
+        // Kiểm tra số lượt sử dụng
+        if (usedCount >= definition.usageLimit()) {
+            return "Mã giảm giá đã hết lượt sử dụng";
+        }
+        return null;
+    }
+
+    private BigDecimal finalTotal(BigDecimal orderTotal, BigDecimal discountAmount) {
+        // Tổng sau khi giảm
+        BigDecimal finalTotal = orderTotal.subtract(discountAmount);
+        return finalTotal.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : finalTotal;
     }
 
     public CouponDTOResponse getCouponInfo(String code) {
-        Optional<Coupon> optional = couponRepository.findByCode(code);
+        Optional<CouponCatalog.CouponDefinition> optional = couponCatalog.find(code);
         if (optional.isEmpty()) return null;
-        return mapToDto(optional.get());
+        CouponCatalog.CouponDefinition definition = optional.get();
+
+        CouponDTOResponse dto = new CouponDTOResponse();
+        dto.setId(definition.id());
+        dto.setCode(definition.code());
+        dto.setDescription(definition.description());
+        dto.setValidFrom(definition.validFrom());
+        dto.setValidTo(definition.validTo());
+        dto.setDiscountValue(definition.discountValue());
+        dto.setIsPercent(definition.percent());
+        dto.setUsageLimit(definition.usageLimit());
+        dto.setUsedCount(usedCount(definition));
+        return dto;
     }
 
     public CouponPageResponse getCoupons(Pageable pageable, String search, String status) {
@@ -150,6 +205,7 @@ public class CouponService {
                     });
         }
 
+        String oldCode = coupon.getCode();
         coupon.setCode(request.getCode());
         coupon.setDescription(request.getDescription());
         coupon.setValidFrom(request.getValidFrom());
@@ -159,6 +215,8 @@ public class CouponService {
         coupon.setUsageLimit(request.getUsageLimit());
 
         couponRepository.save(coupon);
+        couponCatalog.evict(oldCode);
+        couponCatalog.put(coupon);
         return mapToDto(coupon);
     }
 
@@ -166,6 +224,7 @@ public class CouponService {
         Coupon coupon = couponRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy mã giảm giá"));
         couponRepository.delete(coupon);
+        couponCatalog.evict(coupon.getCode());
     }
 
     private CouponDTOResponse mapToDto(Coupon coupon) {
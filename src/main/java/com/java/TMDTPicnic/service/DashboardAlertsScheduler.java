@@ -0,0 +1,60 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.enums.DashboardAlertType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lịch tính lại từng loại cảnh báo dashboard; tính tất cả một lần khi khởi động.
+ * Lượt lỗi thì giữ số đếm cũ trong snapshot và thử lại ở lượt sau.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardAlertsScheduler {
+
+    private final DashboardAlertsService dashboardAlertsService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshAll() {
+        for (DashboardAlertType type : DashboardAlertType.values()) {
+            refresh(type);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard-alerts.overdue-orders-interval-ms:60000}",
+            initialDelayString = "${app.dashboard-alerts.overdue-orders-interval-ms:60000}")
+    public void refreshOverdueOrders() {
+        refresh(DashboardAlertType.ORDER_OVERDUE);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard-alerts.low-stock-interval-ms:60000}",
+            initialDelayString = "${app.dashboard-alerts.low-stock-interval-ms:60000}")
+    public void refreshLowStock() {
+        refresh(DashboardAlertType.LOW_STOCK);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard-alerts.group-buy-interval-ms:300000}",
+            initialDelayString = "${app.dashboard-alerts.group-buy-interval-ms:300000}")
+    public void refreshEndingGroupBuys() {
+        refresh(DashboardAlertType.GROUP_BUY_ENDING);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard-alerts.shared-cart-interval-ms:120000}",
+            initialDelayString = "${app.dashboard-alerts.shared-cart-interval-ms:120000}")
+    public void refreshExpiringSharedCarts() {
+        refresh(DashboardAlertType.SHARED_CART_EXPIRING);
+    }
+
+    private void refresh(DashboardAlertType type) {
+        try {
+            dashboardAlertsService.refresh(type);
+        } catch (RuntimeException e) {
+            log.warn("Dashboard alert {} refresh failed, keeping previous count", type, e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.DashboardAlertsDeltaResponse;
+import com.java.TMDTPicnic.dto.response.DashboardAlertsResponse;
+import com.java.TMDTPicnic.dto.response.DashboardAlertsResponse.AlertDetail;
+import com.java.TMDTPicnic.enums.DashboardAlertType;
+import com.java.TMDTPicnic.enums.GroupBuyStatus;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.enums.SharedCartStatus;
+import com.java.TMDTPicnic.repository.GroupBuyCampaignRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.SharedCartRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cảnh báo dashboard tính nền (DashboardAlertsScheduler), mỗi loại một câu đếm theo index và một lịch riêng.
+ * - Kết quả nằm trong một snapshot bất biến, API chỉ đọc snapshot hiện tại
+ * - Mỗi lần số đếm của một loại đổi thì snapshot tăng version; getChanges(sinceVersion) trả các loại
+ *   đã đổi sau version đó để admin UI hỏi lại định kỳ mà không tải cả snapshot
+ * - Version bắt đầu từ thời điểm khởi động (ms), version cũ hơn hoặc lạ thì trả cả snapshot
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardAlertsService {
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final GroupBuyCampaignRepository groupBuyCampaignRepository;
+    private final SharedCartRepository sharedCartRepository;
+
+    @Value("${app.dashboard-alerts.overdue-order-hours:24}")
+    private long overdueOrderHours;
+
+    @Value("${app.dashboard-kpi.low-stock-threshold:10}")
+    private int lowStockThreshold;
+
+    @Value("${app.dashboard-alerts.group-buy-ending-days:7}")
+    private long groupBuyEndingDays;
+
+    @Value("${app.dashboard-alerts.shared-cart-expiring-hours:24}")
+    private long sharedCartExpiringHours;
+
+    // changedVersion: version của snapshot mà số đếm này xuất hiện lần đầu
+    private record AlertState(long count, long changedVersion) {}
+
+    private record Snapshot(long version, Map<DashboardAlertType, AlertState> alerts) {}
+
+    private final long startVersion = System.currentTimeMillis();
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(startVersion, Map.of()));
+
+    /**
+     * Đếm lại một loại cảnh báo và đưa vào snapshot nếu số đếm thay đổi
+     */
+    public void refresh(DashboardAlertType type) {
+        long count = count(type, LocalDateTime.now());
+        Snapshot updated = snapshot.updateAndGet(current -> {
+            AlertState state = current.alerts().get(type);
+            if (state != null && state.count() == count) {
+                return current;
+            }
+            long version = current.version() + 1;
+            Map<DashboardAlertType, AlertState> alerts = new EnumMap<>(DashboardAlertType.class);
+            alerts.putAll(current.alerts());
+            alerts.put(type, new AlertState(count, version));
+            return new Snapshot(version, Collections.unmodifiableMap(alerts));
+        });
+        log.debug("Dashboard alert {} = {} (snapshot version {})", type, count, updated.version());
+    }
+
+    public DashboardAlertsResponse getAlerts() {
+        Snapshot current = snapshot.get();
+        List<AlertDetail> details = new ArrayList<>();
+        for (DashboardAlertType type : DashboardAlertType.values()) {
+            long count = countOf(current, type);
+            if (count > 0) {
+                details.add(toDetail(type, count));
+            }
+        }
+        return new DashboardAlertsResponse(
+                countOf(current, DashboardAlertType.ORDER_OVERDUE),
+                countOf(current, DashboardAlertType.LOW_STOCK),
+                countOf(current, DashboardAlertType.GROUP_BUY_ENDING),
+                countOf(current, DashboardAlertType.SHARED_CART_EXPIRING),
+                details);
+    }
+
+    /**
+     * Các loại cảnh báo đổi sau sinceVersion; sinceVersion null, từ trước lần khởi động này
+     * hoặc lớn hơn version hiện tại thì trả mọi loại đã tính
+     */
+    public DashboardAlertsDeltaResponse getChanges(Long sinceVersion) {
+        Snapshot current = snapshot.get();
+        boolean full = sinceVersion == null || sinceVersion < startVersion || sinceVersion > current.version();
+
+        List<AlertDetail> changes = new ArrayList<>();
+        current.alerts().forEach((type, state) -> {
+            if (full || state.changedVersion() > sinceVersion) {
+                changes.add(toDetail(type, state.count()));
+            }
+        });
+        return new DashboardAlertsDeltaResponse(current.version(), full, changes);
+    }
+
+    private long count(DashboardAlertType type, LocalDateTime now) {
+        return switch (type) {
+            case ORDER_OVERDUE -> orderRepository.countByStatusAndCreatedAtBefore(
+                    OrderStatus.PENDING, now.minusHours(overdueOrderHours));
+            case LOW_STOCK -> productRepository.countActiveLowStock(lowStockThreshold);
+            case GROUP_BUY_ENDING -> groupBuyCampaignRepository.countByStatusAndEndAtBetween(
+                    GroupBuyStatus.ACTIVE, now, now.plusDays(groupBuyEndingDays));
+            case SHARED_CART_EXPIRING -> sharedCartRepository.countByStatusAndExpiresAtBetween(
+                    SharedCartStatus.OPEN, now, now.plusHours(sharedCartExpiringHours));
+        };
+    }
+
+    private static long countOf(Snapshot snapshot, DashboardAlertType type) {
+        AlertState state = snapshot.alerts().get(type);
+        return state != null ? state.count() : 0L;
+    }
+
+    private AlertDetail toDetail(DashboardAlertType type, long count) {
+        String message = switch (type) {
+            case ORDER_OVERDUE -> count + " đơn PENDING quá " + overdueOrderHours + " giờ";
+            case LOW_STOCK -> count + " sản phẩm đang bán còn tồn kho <= " + lowStockThreshold;
+            case GROUP_BUY_ENDING -> count + " chiến dịch mua chung kết thúc trong " + groupBuyEndingDays + " ngày";
+            case SHARED_CART_EXPIRING -> count + " giỏ chung đang mở hết hạn trong " + sharedCartExpiringHours + " giờ";
+        };
+        return new AlertDetail(type.name(), message, count);
+    }
+}
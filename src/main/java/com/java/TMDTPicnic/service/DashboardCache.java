@@ -0,0 +1,202 @@
+package com.java.TMDTPicnic.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Cache kết quả dashboard theo (endpoint, fromDate, toDate).
+ * - Khoảng đã kết thúc trước hôm nay không hết hạn theo thời gian: chỉ bị xóa khi rollup của một ngày
+ *   trong khoảng thay đổi (evictDays) hoặc khi cache đầy
+ * - Khoảng có hôm nay (hoặc kết quả phụ thuộc thời điểm hiện tại) chỉ giữ today-ttl-seconds
+ * - Nhiều admin cùng hỏi một khóa chưa có thì chỉ một người tính, những người khác chờ kết quả đó
+ * - Metric dashboard.cache.requests{endpoint, result=hit|miss} và dashboard.cache.size (/actuator/prometheus)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardCache {
+
+    public static final String ORDER_SUMMARY = "order-summary";
+    public static final String DAILY_SERIES = "daily-series";
+    public static final String USERS_CHART = "users-chart";
+    public static final String TOP_CATEGORIES = "top-categories";
+    public static final String TOP_PRODUCTS = "top-products";
+    public static final String KPI = "kpi";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.dashboard-cache.today-ttl-seconds:60}")
+    private long todayTtlSeconds;
+
+    @Value("${app.dashboard-cache.max-entries:1000}")
+    private int maxEntries;
+
+    private Map<Key, Entry> entries;
+
+    private record Key(String endpoint, LocalDate fromDate, LocalDate toDate) {
+        boolean overlaps(LocalDate from, LocalDate to) {
+            // Khóa không gắn khoảng ngày (top sản phẩm, ...) không phụ thuộc rollup theo ngày
+            return fromDate != null && toDate != null && !from.isAfter(toDate) && !to.isBefore(fromDate);
+        }
+    }
+
+    // expiresAtNanos = null: không hết hạn theo thời gian
+    private record Entry(CompletableFuture<Object> value, Long expiresAtNanos) {
+        boolean isFresh(long now) {
+            return expiresAtNanos == null || now - expiresAtNanos < 0;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+        Gauge.builder("dashboard.cache.size", entries, Map::size)
+                .description("Số kết quả dashboard đang giữ trong cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Kết quả của khoảng [fromDate, toDate]; chưa có hoặc đã hết hạn thì tính bằng loader.
+     * fromDate/toDate null cho kết quả không theo khoảng ngày, loại này luôn theo TTL ngắn.
+     */
+    public <T> T get(String endpoint, LocalDate fromDate, LocalDate toDate, Supplier<T> loader) {
+        return get(endpoint, fromDate, toDate, false, loader);
+    }
+
+    /**
+     * Như get nhưng luôn theo TTL ngắn, cho kết quả có phần phụ thuộc thời điểm hiện tại (KPI tồn kho, mã còn hạn, ...)
+     */
+    public <T> T getLive(String endpoint, LocalDate fromDate, LocalDate toDate, Supplier<T> loader) {
+        return get(endpoint, fromDate, toDate, true, loader);
+    }
+
+    /**
+     * Tính lại và thay entry hiện có, dùng khi làm nóng cache; người đọc cùng lúc chờ kết quả mới
+     */
+    public <T> T refresh(String endpoint, LocalDate fromDate, LocalDate toDate, boolean live, Supplier<T> loader) {
+        Key key = new Key(endpoint, fromDate, toDate);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        entries.put(key, new Entry(mine, expiresAt(toDate, live)));
+        return load(key, mine, loader);
+    }
+
+    /**
+     * Xóa các kết quả có khoảng chứa một ngày trong [fromDate, toDate]. Gọi khi rollup của những ngày này
+     * thay đổi; xóa ngay và xóa lần nữa khi transaction kết thúc (lượt đọc chen giữa có thể thấy dữ liệu cũ)
+     */
+    public void evictDays(LocalDate fromDate, LocalDate toDate) {
+        removeOverlapping(fromDate, toDate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeOverlapping(fromDate, toDate);
+                }
+            });
+        }
+    }
+
+    private <T> T get(String endpoint, LocalDate fromDate, LocalDate toDate, boolean live, Supplier<T> loader) {
+        Key key = new Key(endpoint, fromDate, toDate);
+        long now = System.nanoTime();
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        Entry existing;
+        synchronized (entries) {
+            existing = entries.get(key);
+            if (existing == null || !existing.isFresh(now)) {
+                entries.put(key, new Entry(mine, expiresAt(toDate, live)));
+                existing = null;
+            }
+        }
+
+        if (existing != null) {
+            count(endpoint, "hit");
+            try {
+                @SuppressWarnings("unchecked")
+                T value = (T) existing.value().join();
+                return value;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        count(endpoint, "miss");
+        return load(key, mine, loader);
+    }
+
+    private <T> T load(Key key, CompletableFuture<Object> mine, Supplier<T> loader) {
+        try {
+            T value = loader.get();
+            // Entry bị xóa trong lúc tính (rollup vừa đổi) thì không đặt lại: người sau sẽ tính lại
+            mine.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Mọi lỗi (kể cả Error như OutOfMemoryError): không giữ lỗi trong cache, lần gọi sau tính lại,
+            // và luôn hoàn tất future để các request đang chờ entry này không bị treo
+            synchronized (entries) {
+                Entry current = entries.get(key);
+                if (current != null && current.value() == mine) {
+                    entries.remove(key);
+                }
+            }
+            mine.completeExceptionally(e);
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Long expiresAt(LocalDate toDate, boolean live) {
+        if (!live && toDate != null && toDate.isBefore(LocalDate.now())) {
+            return null;
+        }
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(todayTtlSeconds);
+    }
+
+    private void removeOverlapping(LocalDate fromDate, LocalDate toDate) {
+        int before;
+        int after;
+        synchronized (entries) {
+            before = entries.size();
+            entries.keySet().removeIf(key -> key.overlaps(fromDate, toDate));
+            after = entries.size();
+        }
+        if (before != after) {
+            log.debug("Evicted {} dashboard cache entries for {}..{}", before - after, fromDate, toDate);
+        }
+    }
+
+    private void count(String endpoint, String result) {
+        Counter.builder("dashboard.cache.requests")
+                .description("Số lần đọc cache dashboard theo endpoint và kết quả (hit/miss)")
+                .tag("endpoint", endpoint)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,46 @@
+package com.java.TMDTPicnic.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tính sẵn kết quả dashboard của các khoảng chuẩn (hôm nay, 7 ngày, 30 ngày kết thúc hôm nay)
+ * khi khởi động và định kỳ, trước khi entry TTL ngắn của chúng hết hạn, để admin mở dashboard luôn đọc từ bộ nhớ
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardCacheWarmer {
+
+    private final DashboardService dashboardService;
+    private final DashboardKpiService dashboardKpiService;
+
+    @Value("${app.dashboard-cache.warmup-ranges-days:1,7,30}")
+    private List<Integer> rangesDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.dashboard-cache.warmup-interval-ms:50000}",
+            initialDelayString = "${app.dashboard-cache.warmup-interval-ms:50000}")
+    public void warmUp() {
+        LocalDate today = LocalDate.now();
+        long started = System.nanoTime();
+        for (int days : rangesDays) {
+            LocalDate fromDate = today.minusDays(days - 1L);
+            try {
+                dashboardService.warmUp(fromDate, today);
+                dashboardKpiService.warmUp(fromDate, today);
+            } catch (RuntimeException e) {
+                log.warn("Dashboard cache warmup failed for {}..{}, retrying next run", fromDate, today, e);
+            }
+        }
+        log.debug("Warmed dashboard cache for ranges {} in {} ms", rangesDays, (System.nanoTime() - started) / 1_000_000);
+    }
+}
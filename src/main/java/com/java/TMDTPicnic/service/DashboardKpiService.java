@@ -0,0 +1,239 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.*;
+import com.java.TMDTPicnic.repository.CouponRedemptionRepository;
+import com.java.TMDTPicnic.repository.CouponRepository;
+import com.java.TMDTPicnic.repository.DashboardRollupRepository;
+import com.java.TMDTPicnic.repository.DashboardRollupRepository.DailyTotals;
+import com.java.TMDTPicnic.repository.GroupBuyCampaignRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.SharedCartItemRepository;
+import com.java.TMDTPicnic.repository.SharedCartRepository;
+import com.java.TMDTPicnic.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Các chỉ số KPI của dashboard cho một khoảng ngày.
+ * - Mỗi bảng chỉ một câu truy vấn (đếm có điều kiện, top-N lấy chung qua window function);
+ *   doanh thu và số đơn đọc từ bảng rollup theo ngày
+ * - Kết quả giữ trong DashboardCache với TTL ngắn (có số liệu theo thời điểm hiện tại: tồn kho, mã còn hạn, ...)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardKpiService {
+
+    private static final int TOP_LIMIT = 5;
+
+    private final DashboardRollupRepository dashboardRollupRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final CouponRepository couponRepository;
+    private final CouponRedemptionRepository couponRedemptionRepository;
+    private final SharedCartRepository sharedCartRepository;
+    private final SharedCartItemRepository sharedCartItemRepository;
+    private final GroupBuyCampaignRepository groupBuyCampaignRepository;
+    private final DashboardCache dashboardCache;
+
+    @Value("${app.dashboard-kpi.low-stock-threshold:10}")
+    private int lowStockThreshold;
+
+    public DashboardKpiResponse getKpis(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+            throw new RuntimeException("Khoảng ngày không hợp lệ");
+        }
+
+        return dashboardCache.getLive(DashboardCache.KPI, fromDate, toDate, () -> compute(fromDate, toDate));
+    }
+
+    public void warmUp(LocalDate fromDate, LocalDate toDate) {
+        dashboardCache.refresh(DashboardCache.KPI, fromDate, toDate, true, () -> compute(fromDate, toDate));
+    }
+
+    private DashboardKpiResponse compute(LocalDate fromDate, LocalDate toDate) {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        // Số ngày đã trôi qua trong khoảng (không tính các ngày tương lai) để lấy trung bình
+        LocalDate lastElapsedDay = toDate.isAfter(now.toLocalDate()) ? now.toLocalDate() : toDate;
+        long elapsedDays = Math.max(0, ChronoUnit.DAYS.between(fromDate, lastElapsedDay) + 1);
+
+        List<DailyTotals> days = dashboardRollupRepository.findDailyTotals(fromDate, toDate);
+        OrdersKpiResponse orders = buildOrdersKpi(days, elapsedDays);
+        DashboardKpiResponse response = DashboardKpiResponse.builder()
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .computedAt(now)
+                .revenue(buildRevenueKpi(days, elapsedDays))
+                .orders(orders)
+                .users(buildUsersKpi(fromDate, toDate, elapsedDays))
+                .products(buildProductStats())
+                .coupons(buildCouponStats(fromDate, toDate, now, orders.getTotalOrders()))
+                .sharedCarts(buildSharedCartStats(now))
+                .groupBuys(buildGroupBuyStats(now))
+                .build();
+
+        log.debug("Computed dashboard KPIs {}..{} in {} ms", fromDate, toDate, (System.nanoTime() - started) / 1_000_000);
+        return response;
+    }
+
+    private RevenueKpiResponse buildRevenueKpi(List<DailyTotals> days, long elapsedDays) {
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal max = null;
+        BigDecimal min = null;
+        long orders = 0;
+        for (DailyTotals day : days) {
+            total = total.add(day.revenue());
+            orders += day.orders();
+            max = max == null || day.revenue().compareTo(max) > 0 ? day.revenue() : max;
+            min = min == null || day.revenue().compareTo(min) < 0 ? day.revenue() : min;
+        }
+        // Có ngày không phát sinh đơn thì doanh thu thấp nhất là 0
+        if (days.size() < elapsedDays || min == null) {
+            min = BigDecimal.ZERO;
+        }
+
+        return RevenueKpiResponse.builder()
+                .totalRevenue(total)
+                .averageDailyRevenue(elapsedDays > 0
+                        ? total.divide(BigDecimal.valueOf(elapsedDays), 2, RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO)
+                .maxDailyRevenue(max != null ? max : BigDecimal.ZERO)
+                .minDailyRevenue(min)
+                .totalOrders(orders)
+                .build();
+    }
+
+    private OrdersKpiResponse buildOrdersKpi(List<DailyTotals> days, long elapsedDays) {
+        long total = 0;
+        long completed = 0;
+        long pending = 0;
+        long shipped = 0;
+        long paid = 0;
+        for (DailyTotals day : days) {
+            total += day.orders();
+            completed += day.completed();
+            pending += day.pending();
+            shipped += day.shipped();
+            paid += day.paid();
+        }
+
+        return OrdersKpiResponse.builder()
+                .totalOrders(total)
+                .completedOrders(completed)
+                .pendingOrders(pending)
+                .shippedOrders(shipped)
+                .paidOrders(paid)
+                .averageOrdersPerDay(elapsedDays > 0 ? (double) total / elapsedDays : 0d)
+                .build();
+    }
+
+    private UsersKpiResponse buildUsersKpi(LocalDate fromDate, LocalDate toDate, long elapsedDays) {
+        Object[] row = firstRow(userRepository.getUserKpiRaw(fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay()));
+        long newUsers = toLong(row[1]);
+
+        return UsersKpiResponse.builder()
+                .totalUsers(toLong(row[0]))
+                .newUsers(newUsers)
+                .activeUsers(toLong(row[2]))
+                .averageNewUsersPerDay(elapsedDays > 0 ? (double) newUsers / elapsedDays : 0d)
+                .build();
+    }
+
+    private ProductStatsResponse buildProductStats() {
+        // Mọi dòng đều mang cùng các cột tổng (window function), cột 5/6 là hạng trong top điểm cao/thấp
+        List<Object[]> rows = productRepository.getProductStatsRaw(lowStockThreshold, TOP_LIMIT);
+        Object[] totals = rows.isEmpty() ? new Object[12] : rows.get(0);
+
+        return new ProductStatsResponse(
+                toLong(totals[7]),
+                toLong(totals[8]),
+                toLong(totals[9]),
+                toLong(totals[10]),
+                toLong(totals[11]),
+                rankedProducts(rows, 5),
+                rankedProducts(rows, 6));
+    }
+
+    private static List<TopProductResponse> rankedProducts(List<Object[]> rows, int rankColumn) {
+        return rows.stream()
+                .filter(row -> row[rankColumn] != null)
+                .sorted(Comparator.comparingLong(row -> toLong(row[rankColumn])))
+                .map(row -> new TopProductResponse(
+                        toLong(row[0]), (String) row[1], (int) toLong(row[2]), toBigDecimal(row[3])))
+                .toList();
+    }
+
+    private CouponStatsResponse buildCouponStats(LocalDate fromDate, LocalDate toDate, LocalDateTime now, long ordersInRange) {
+        List<Object[]> rows = couponRepository.getCouponStatsRaw(now, TOP_LIMIT);
+
+        List<TopCouponResponse> topUsed = new ArrayList<>();
+        for (Object[] row : rows) {
+            if (toLong(row[2]) > 0) {
+                topUsed.add(new TopCouponResponse(
+                        toLong(row[0]),
+                        (String) row[1],
+                        (int) toLong(row[2]),
+                        row[3] != null ? (int) toLong(row[3]) : null));
+            }
+        }
+
+        long redeemed = couponRedemptionRepository.countRedeemedBetween(
+                fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay());
+        Object[] totals = rows.isEmpty() ? new Object[7] : rows.get(0);
+        return new CouponStatsResponse(
+                toLong(totals[4]),
+                toLong(totals[5]),
+                toLong(totals[6]),
+                ordersInRange > 0 ? redeemed * 100.0 / ordersInRange : 0d,
+                topUsed);
+    }
+
+    private SharedCartStatsResponse buildSharedCartStats(LocalDateTime now) {
+        Object[] row = firstRow(sharedCartRepository.getSharedCartStatsRaw(now, now.plusHours(24)));
+
+        List<TopProductResponse> topProducts = new ArrayList<>();
+        for (Object[] item : sharedCartItemRepository.getTopProductsRaw(TOP_LIMIT)) {
+            topProducts.add(new TopProductResponse(
+                    toLong(item[0]),
+                    (String) item[1],
+                    (int) toLong(item[2]),
+                    toBigDecimal(item[3])));
+        }
+
+        return new SharedCartStatsResponse(toLong(row[0]), toLong(row[1]), toLong(row[2]), topProducts);
+    }
+
+    private GroupBuyStatsResponse buildGroupBuyStats(LocalDateTime now) {
+        Object[] row = firstRow(groupBuyCampaignRepository.getCampaignStatsRaw(now, now.plusDays(7)));
+        return new GroupBuyStatsResponse(toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]));
+    }
+
+    // Câu tổng hợp không GROUP BY luôn trả về đúng một dòng
+    private static Object[] firstRow(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[4] : rows.get(0);
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        return value instanceof Number number ? BigDecimal.valueOf(number.doubleValue()) : BigDecimal.ZERO;
+    }
+}
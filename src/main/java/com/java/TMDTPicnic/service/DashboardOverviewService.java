@@ -0,0 +1,101 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.request.DashboardRequest;
+import com.java.TMDTPicnic.dto.response.*;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Toàn bộ dashboard trong một lần gọi: tóm tắt đơn, biểu đồ doanh thu/đơn/user, top danh mục/sản phẩm.
+ * - Các phần chạy đồng thời trên virtual thread, thời gian trả về ~ phần chậm nhất thay vì tổng các phần
+ * - Semaphore giới hạn số phần chạy cùng lúc (mỗi phần giữ tối đa một kết nối Hikari),
+ *   dashboard không chiếm hết pool của checkout/thanh toán
+ * - Từng phần vẫn đọc qua DashboardCache như các endpoint riêng lẻ
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardOverviewService {
+
+    private final DashboardService dashboardService;
+    private final ExecutorService dashboardExecutor;
+
+    @Value("${app.dashboard-overview.max-concurrent-queries:4}")
+    private int maxConcurrentQueries;
+
+    @Value("${app.dashboard-overview.timeout-ms:10000}")
+    private long timeoutMs;
+
+    private Semaphore queryPermits;
+
+    @PostConstruct
+    void init() {
+        queryPermits = new Semaphore(maxConcurrentQueries, true);
+    }
+
+    public DashboardOverviewResponse getOverview(DashboardRequest request) {
+        long started = System.nanoTime();
+
+        Future<DashboardResponse> summary = submit(() -> dashboardService.getOrderSummary(request));
+        Future<List<RevenueByDayResponse>> revenue = submit(() -> dashboardService.getRevenueChart(request));
+        Future<List<OrdersByDayResponse>> orders = submit(() -> dashboardService.getOrdersChart(request));
+        Future<List<UserStatsByDayResponse>> users = submit(() -> dashboardService.getUsersChart(request));
+        Future<List<TopCategoryResponse>> topCategories = submit(dashboardService::getTopCategories);
+        Future<List<TopProductResponse>> topProducts = submit(dashboardService::getTopProducts);
+        List<Future<?>> parts = List.of(summary, revenue, orders, users, topCategories, topProducts);
+
+        // Chung một hạn chót cho cả lượt; phần lỗi/quá hạn thì hủy các phần còn lại (ngắt thread đang chờ lượt)
+        long deadline = started + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            for (Future<?> part : parts) {
+                part.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            parts.forEach(part -> part.cancel(true));
+            throw new RuntimeException("Quá thời gian lấy dữ liệu dashboard");
+        } catch (ExecutionException e) {
+            parts.forEach(part -> part.cancel(true));
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            parts.forEach(part -> part.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bị gián đoạn khi lấy dữ liệu dashboard");
+        }
+
+        log.debug("Dashboard overview {}..{} in {} ms", request.getFromDate(), request.getToDate(),
+                (System.nanoTime() - started) / 1_000_000);
+        return DashboardOverviewResponse.builder()
+                .fromDate(request.getFromDate())
+                .toDate(request.getToDate())
+                .summary(summary.resultNow().getSummary())
+                .revenueChart(revenue.resultNow())
+                .ordersChart(orders.resultNow())
+                .usersChart(users.resultNow())
+                .topCategories(topCategories.resultNow())
+                .topProducts(topProducts.resultNow())
+                .build();
+    }
+
+    private <T> Future<T> submit(Supplier<T> query) {
+        return dashboardExecutor.submit(() -> {
+            queryPermits.acquire();
+            try {
+                return query.get();
+            } finally {
+                queryPermits.release();
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.java.TMDTPicnic.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Đối soát rollup dashboard mỗi đêm: tính lại vài ngày gần nhất từ bảng gốc
+ * để sửa sai lệch (đơn đổi trạng thái mà không qua outbox, dữ liệu sửa tay, ...)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardRollupScheduler {
+
+    private final DashboardRollupService dashboardRollupService;
+
+    @Value("${app.dashboard-rollup.reconcile-days:3}")
+    private int reconcileDays;
+
+    @Value("${app.order-events.retention-days:7}")
+    private int retentionDays;
+
+    @Scheduled(cron = "${app.dashboard-rollup.reconcile-cron:0 0 4 * * *}")
+    public void reconcileRecentDays() {
+        LocalDate today = LocalDate.now();
+        try {
+            dashboardRollupService.reconcile(today.minusDays(reconcileDays - 1L), today.plusDays(1));
+        } catch (RuntimeException e) {
+            log.error("Dashboard rollup reconciliation failed, retrying next run", e);
+        }
+
+        // Sự kiện đã xử lý bị xóa khỏi outbox sau retention-days nên không thể được giao lại
+        int purged = dashboardRollupService.purgeAppliedBefore(LocalDateTime.now().minusDays(retentionDays + 1L));
+        if (purged > 0) {
+            log.info("Purged {} applied rollup event markers", purged);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.repository.DashboardRollupRepository;
+import com.java.TMDTPicnic.repository.DashboardRollupRepository.OrderRollup;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Giữ các bảng tổng hợp theo ngày của dashboard luôn cập nhật:
+ * - Sự kiện đơn hàng từ outbox: đơn mới cộng vào (ngày tạo, loại, trạng thái), đổi trạng thái thì
+ *   chuyển số đơn và tiền từ dòng trạng thái cũ sang dòng trạng thái mới
+ * - User đăng ký: cộng vào ngày tạo trong cùng transaction
+ * - Đối soát: tính lại vài ngày gần nhất từ bảng gốc (DashboardRollupScheduler)
+ * Mỗi lần rollup của ngày nào đổi thì xóa các kết quả DashboardCache có khoảng chứa ngày đó
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DashboardRollupService implements OrderEventHandler {
+
+    private final DashboardRollupRepository dashboardRollupRepository;
+    private final DashboardCache dashboardCache;
+
+    @Override
+    public Set<OrderEventType> supportedTypes() {
+        return EnumSet.allOf(OrderEventType.class);
+    }
+
+    @Override
+    @Transactional
+    public void handle(OrderEvent event, Map<String, Object> payload) {
+        // Outbox giao ít nhất một lần: sự kiện đã cộng (hoặc đã nằm trong lần đối soát) thì bỏ qua
+        if (dashboardRollupRepository.isApplied(event.getId())) {
+            return;
+        }
+        List<OrderRollup> deltas = toDeltas(event.getEventType(), payload);
+        dashboardRollupRepository.addOrders(deltas);
+        deltas.stream().map(OrderRollup::day).distinct().forEach(day -> dashboardCache.evictDays(day, day));
+        // Trùng khóa khi đối soát vừa ghi nhận sự kiện này -> rollback phần vừa cộng, lần thử lại sẽ bỏ qua
+        dashboardRollupRepository.markApplied(event.getId(), LocalDateTime.now());
+    }
+
+    @Transactional
+    public void recordNewUser(LocalDateTime createdAt) {
+        if (createdAt != null) {
+            dashboardRollupRepository.addNewUsers(createdAt.toLocalDate(), 1);
+            dashboardCache.evictDays(createdAt.toLocalDate(), createdAt.toLocalDate());
+        }
+    }
+
+    /**
+     * Tính lại rollup của [fromDate, toExclusive) từ bảng orders, orders_archive và users.
+     * Khóa các dòng rollup trước rồi mới đọc bảng gốc, sự kiện chưa xử lý của các đơn trong khoảng
+     * được đánh dấu đã cộng vì thay đổi của chúng đã có trong số liệu vừa tính.
+     */
+    @Transactional
+    public void reconcile(LocalDate fromDate, LocalDate toExclusive) {
+        dashboardRollupRepository.lockDays(fromDate, toExclusive);
+
+        List<OrderRollup> orderRollups = dashboardRollupRepository.computeOrderRollups(fromDate, toExclusive);
+        Map<LocalDate, Long> newUsers = dashboardRollupRepository.computeUserRollups(fromDate, toExclusive);
+        List<Long> pendingEventIds = dashboardRollupRepository.findPendingEventIds(fromDate, toExclusive);
+
+        dashboardRollupRepository.replaceOrderRollups(fromDate, toExclusive, orderRollups);
+        dashboardRollupRepository.replaceUserRollups(fromDate, toExclusive, newUsers);
+        dashboardRollupRepository.markAppliedIfAbsent(pendingEventIds, LocalDateTime.now());
+        dashboardCache.evictDays(fromDate, toExclusive.minusDays(1));
+
+        log.info("Reconciled dashboard rollups {}..{}: {} order rows, {} user days, {} pending events absorbed",
+                fromDate, toExclusive.minusDays(1), orderRollups.size(), newUsers.size(), pendingEventIds.size());
+    }
+
+    @Transactional
+    public int purgeAppliedBefore(LocalDateTime before) {
+        return dashboardRollupRepository.purgeAppliedBefore(before);
+    }
+
+    // payload: orderType, status (sau sự kiện), previousStatus, totalAmount, createdAt (xem OrderEventService)
+    static List<OrderRollup> toDeltas(OrderEventType type, Map<String, Object> payload) {
+        Object createdAt = payload.get("createdAt");
+        String status = (String) payload.get("status");
+        if (createdAt == null || status == null) {
+            return List.of();
+        }
+        LocalDate day = LocalDateTime.parse(createdAt.toString()).toLocalDate();
+        String orderType = payload.get("orderType") != null ? (String) payload.get("orderType") : "SINGLE";
+        BigDecimal amount = payload.get("totalAmount") != null
+                ? new BigDecimal(payload.get("totalAmount").toString())
+                : BigDecimal.ZERO;
+
+        if (type == OrderEventType.ORDER_CREATED) {
+            return List.of(new OrderRollup(day, orderType, status, 1, amount));
+        }
+
+        String previousStatus = (String) payload.get("previousStatus");
+        if (previousStatus == null || previousStatus.equals(status)) {
+            return List.of();
+        }
+        return List.of(
+                new OrderRollup(day, orderType, previousStatus, -1, amount.negate()),
+                new OrderRollup(day, orderType, status, 1, amount));
+    }
+}
@@ -3,6 +3,7 @@ package com.java.TMDTPicnic.service;
 import com.java.TMDTPicnic.dto.request.DashboardRequest;
 import com.java.TMDTPicnic.dto.response.*;
 import com.java.TMDTPicnic.repository.*;
+import com.java.TMDTPicnic.repository.DashboardRollupRepository.DailyTotals;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,9 +14,15 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.temporal.IsoFields;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,7 +32,10 @@ public class DashboardService {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
+    private final DashboardRollupRepository dashboardRollupRepository;
+    private final DashboardCache dashboardCache;
     private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
     // ==================== DASHBOARD SUMMARY ONLY ====================
     public DashboardResponse getOrderSummary(DashboardRequest request) {
         LocalDate fromDate = request.getFromDate();
@@ -33,6 +43,20 @@ public class DashboardService {
 
         logger.info("DashboardService.getDashboard called with fromDate={}, toDate={}", fromDate, toDate);
 
+        return dashboardCache.get(DashboardCache.ORDER_SUMMARY, fromDate, toDate, () -> loadOrderSummary(fromDate, toDate));
+    }
+
+    /**
+     * Tính sẵn các kết quả theo khoảng [fromDate, toDate] vào cache (DashboardCacheWarmer)
+     */
+    public void warmUp(LocalDate fromDate, LocalDate toDate) {
+        dashboardCache.refresh(DashboardCache.ORDER_SUMMARY, fromDate, toDate, false, () -> loadOrderSummary(fromDate, toDate));
+        dashboardCache.refresh(DashboardCache.DAILY_SERIES, fromDate, toDate, false,
+                () -> List.copyOf(dashboardRollupRepository.findDailyTotals(fromDate, toDate)));
+        dashboardCache.refresh(DashboardCache.USERS_CHART, fromDate, toDate, false, () -> loadUsersChart(fromDate, toDate));
+    }
+
+    private DashboardResponse loadOrderSummary(LocalDate fromDate, LocalDate toDate) {
         DashboardResponse response = new DashboardResponse();
 
         try {
@@ -48,7 +72,23 @@ public class DashboardService {
     private OrderSummaryDashboardResponse buildOrderSummary(LocalDate fromDate, LocalDate toDate) {
         OrderSummaryDashboardResponse orderSummary = new OrderSummaryDashboardResponse();
 
-        orderSummary.setOrdersStatus(orderRepository.getOrderStatusWithDayRange(fromDate, toDate));
+        long total = 0;
+        Map<String, Long> byStatus = new HashMap<>();
+        Map<String, Long> byType = new TreeMap<>();
+        for (DashboardRollupRepository.OrderRollup rollup : dashboardRollupRepository.findOrderRollups(fromDate, toDate)) {
+            total += rollup.orderCount();
+            byStatus.merge(rollup.status(), rollup.orderCount(), Long::sum);
+            byType.merge(rollup.orderType(), rollup.orderCount(), Long::sum);
+        }
+        byType.values().removeIf(count -> count == 0);
+
+        orderSummary.setOrdersStatus(new OrderStatusResponse(
+                total,
+                byStatus.getOrDefault("COMPLETED", 0L),
+                byStatus.getOrDefault("PENDING", 0L),
+                byStatus.getOrDefault("PAID", 0L),
+                byStatus.getOrDefault("SHIPPED", 0L)));
+        orderSummary.setOrdersByType(byType);
         return orderSummary;
     }
 
@@ -104,26 +144,110 @@ public class DashboardService {
     }
 
     // ==================== OTHER CHART API ====================
+    // Các biểu đồ theo ngày đọc bảng rollup (vài dòng mỗi ngày), không quét bảng orders/users
     public List<RevenueByDayResponse> getRevenueChart(DashboardRequest request) {
-        return mapToRevenueByDay(orderRepository.getRevenueByDayRawWithDateRange(request.getFromDate(), request.getToDate()));
+        return mapToRevenueByDay(sumOrderRollupsByDay(request, true));
     }
 
     public List<OrdersByDayResponse> getOrdersChart(DashboardRequest request) {
-        return mapToOrdersByDay(orderRepository.getOrdersByDayRawWithDateRange(request.getFromDate(), request.getToDate()));
+        return mapToOrdersByDay(sumOrderRollupsByDay(request, false));
     }
 
     public List<UserStatsByDayResponse> getUsersChart(DashboardRequest request) {
-        return mapToUserStatsByDay(userRepository.getUserStatsByDayRawWithDateRange(request.getFromDate(), request.getToDate()));
+        LocalDate fromDate = request.getFromDate();
+        LocalDate toDate = request.getToDate();
+        return dashboardCache.get(DashboardCache.USERS_CHART, fromDate, toDate, () -> loadUsersChart(fromDate, toDate));
+    }
+
+    private List<UserStatsByDayResponse> loadUsersChart(LocalDate fromDate, LocalDate toDate) {
+        return mapToUserStatsByDay(dashboardRollupRepository.findUserRollups(fromDate, toDate));
+    }
+
+    // [date, revenue] hoặc [date, orders] cho các ngày có đơn, cùng dạng với các câu GROUP BY DATE(created_at) cũ
+    private List<Object[]> sumOrderRollupsByDay(DashboardRequest request, boolean revenue) {
+        List<Object[]> rows = new ArrayList<>();
+        for (DailyTotals day : dailySeries(request.getFromDate(), request.getToDate())) {
+            rows.add(new Object[]{Date.valueOf(day.day()), revenue ? day.revenue() : day.orders()});
+        }
+        return rows;
+    }
+
+    // ==================== WEEK / MONTH CHART API ====================
+    // Cộng dồn chuỗi theo ngày trong bộ nhớ, không thêm câu SQL nào.
+    // Tuần/tháng ở hai đầu khoảng chỉ tính các ngày nằm trong khoảng.
+    public List<RevenueByWeekResponse> getRevenueByWeek(DashboardRequest request) {
+        List<RevenueByWeekResponse> result = new ArrayList<>();
+        groupDays(request, DashboardService::isoWeek).forEach((week, days) ->
+                result.add(new RevenueByWeekResponse(week, sumRevenue(days))));
+        return result;
+    }
+
+    public List<OrdersByWeekResponse> getOrdersByWeek(DashboardRequest request) {
+        List<OrdersByWeekResponse> result = new ArrayList<>();
+        groupDays(request, DashboardService::isoWeek).forEach((week, days) ->
+                result.add(new OrdersByWeekResponse(week, sumOrders(days))));
+        return result;
+    }
+
+    public List<RevenueByMonthResponse> getRevenueByMonth(DashboardRequest request) {
+        List<RevenueByMonthResponse> result = new ArrayList<>();
+        groupDays(request, day -> YearMonth.from(day).toString()).forEach((month, days) ->
+                result.add(new RevenueByMonthResponse(Date.valueOf(YearMonth.parse(month).atDay(1)), sumRevenue(days))));
+        return result;
+    }
+
+    public List<OrdersByMonthResponse> getOrdersByMonth(DashboardRequest request) {
+        List<OrdersByMonthResponse> result = new ArrayList<>();
+        groupDays(request, day -> YearMonth.from(day).toString()).forEach((month, days) ->
+                result.add(new OrdersByMonthResponse(month, sumOrders(days))));
+        return result;
+    }
+
+    // Nhãn tuần ISO-8601, ví dụ 2025-W03 (tuần bắt đầu thứ Hai, năm theo tuần có thể khác năm dương lịch)
+    static String isoWeek(LocalDate day) {
+        return String.format("%d-W%02d", day.get(IsoFields.WEEK_BASED_YEAR), day.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    // Nhãn tuần/tháng đều sắp được theo thứ tự chuỗi nên TreeMap giữ đúng thứ tự thời gian
+    private Map<String, List<DailyTotals>> groupDays(DashboardRequest request, Function<LocalDate, String> bucket) {
+        Map<String, List<DailyTotals>> grouped = new TreeMap<>();
+        for (DailyTotals day : dailySeries(request.getFromDate(), request.getToDate())) {
+            grouped.computeIfAbsent(bucket.apply(day.day()), key -> new ArrayList<>()).add(day);
+        }
+        return grouped;
+    }
+
+    private static BigDecimal sumRevenue(List<DailyTotals> days) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (DailyTotals day : days) {
+            total = total.add(day.revenue());
+        }
+        return total;
+    }
+
+    private static long sumOrders(List<DailyTotals> days) {
+        long total = 0;
+        for (DailyTotals day : days) {
+            total += day.orders();
+        }
+        return total;
+    }
+
+    // Chuỗi tổng theo ngày của khoảng, dùng chung cho biểu đồ ngày/tuần/tháng
+    private List<DailyTotals> dailySeries(LocalDate fromDate, LocalDate toDate) {
+        return dashboardCache.get(DashboardCache.DAILY_SERIES, fromDate, toDate,
+                () -> List.copyOf(dashboardRollupRepository.findDailyTotals(fromDate, toDate)));
     }
 
     public List<TopCategoryResponse> getTopCategories() {
         Pageable top10 = PageRequest.of(0, 10);
-        return productRepository.getTopCategories(top10);
+        return dashboardCache.get(DashboardCache.TOP_CATEGORIES, null, null, () -> productRepository.getTopCategories(top10));
     }
 
     public List<TopProductResponse> getTopProducts() {
         Pageable top10 = PageRequest.of(0, 10);
-        List<TopProductResponse> topProducts = productRepository.getTopProducts(top10);
+        List<TopProductResponse> topProducts = dashboardCache.get(DashboardCache.TOP_PRODUCTS, null, null,
+                () -> productRepository.getTopProducts(top10));
         return topProducts.size() > 10 ? topProducts.subList(0, 10) : topProducts;
     }
 
@@ -0,0 +1,208 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.FlashSaleProductResponse;
+import com.java.TMDTPicnic.entity.Product;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cổng vào checkout cho sản phẩm flash sale.
+ * Tồn kho còn lại của sản phẩm "hot" được nạp sẵn vào bộ đếm trong bộ nhớ; checkout phải lấy đủ token
+ * (admit) trước khi mở transaction checkout, hết token thì bị từ chối ngay mà không giữ kết nối DB.
+ * - Admission được gắn vào transaction checkout: commit -> token thành tồn kho đã trừ, rollback -> trả token
+ * - Checkout lỗi trước khi gắn vào transaction thì người gọi trả token (releaseIfUnbound)
+ * - Reconciler định kỳ đặt lại bộ đếm = tồn kho DB - số lượng đang checkout (DB vẫn là nguồn đúng cuối cùng)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleGate {
+
+    private final ProductRepository productRepository;
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private static final class Counter {
+        final AtomicInteger available = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+    }
+
+    public FlashSaleProductResponse enable(Long productId) {
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+        Counter counter = counters.computeIfAbsent(productId, id -> new Counter());
+        counter.available.set(Math.max(0, stockOf(product) - counter.inFlight.get()));
+        log.info("Flash sale enabled for product #{} with {} tokens", productId, counter.available.get());
+        return toResponse(productId, counter);
+    }
+
+    public void disable(Long productId) {
+        if (counters.remove(productId) == null) {
+            throw new RuntimeException("Product #" + productId + " is not in flash sale");
+        }
+        log.info("Flash sale disabled for product #{}", productId);
+    }
+
+    public List<FlashSaleProductResponse> list() {
+        List<FlashSaleProductResponse> result = new ArrayList<>();
+        new TreeMap<>(counters).forEach((productId, counter) -> result.add(toResponse(productId, counter)));
+        return result;
+    }
+
+    /**
+     * Lấy token cho các sản phẩm flash sale trong đơn, gọi TRƯỚC transaction checkout (không chạm DB).
+     * Thiếu token ở bất kỳ sản phẩm nào -> trả lại token đã lấy và từ chối cả đơn.
+     */
+    public Admission admit(Map<Long, Integer> quantities) {
+        if (counters.isEmpty()) {
+            return noAdmission();
+        }
+
+        Map<Long, Integer> acquired = new TreeMap<>();
+        for (Map.Entry<Long, Integer> line : new TreeMap<>(quantities).entrySet()) {
+            Counter counter = counters.get(line.getKey());
+            if (counter == null) {
+                continue;
+            }
+            if (!tryAcquire(counter, line.getValue())) {
+                release(acquired, true);
+                throw new RuntimeException("Product " + line.getKey() + " out of stock");
+            }
+            acquired.put(line.getKey(), line.getValue());
+        }
+        return new Admission(acquired);
+    }
+
+    /**
+     * Admission rỗng cho checkout không đi qua admit: đơn có sản phẩm flash sale sẽ bị từ chối khi gắn
+     */
+    public Admission noAdmission() {
+        return new Admission(Map.of());
+    }
+
+    /**
+     * Token đã lấy cho một lần checkout
+     */
+    public final class Admission {
+
+        private final Map<Long, Integer> acquired;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile boolean bound;
+
+        private Admission(Map<Long, Integer> acquired) {
+            this.acquired = acquired;
+        }
+
+        /**
+         * Gắn vào transaction checkout đang chạy. Số lượng sản phẩm flash sale của đơn (đã resolve trong
+         * transaction) phải khớp với số token đã lấy, nếu không thì từ chối để người dùng đặt lại.
+         */
+        public void bindToTransaction(Map<Long, Integer> quantities) {
+            Map<Long, Integer> flashSaleLines = new TreeMap<>();
+            quantities.forEach((productId, qty) -> {
+                if (counters.containsKey(productId) || acquired.containsKey(productId)) {
+                    flashSaleLines.put(productId, qty);
+                }
+            });
+            if (!flashSaleLines.equals(acquired)) {
+                throw new RuntimeException("Số lượng sản phẩm flash sale trong đơn đã thay đổi, vui lòng đặt lại");
+            }
+            if (acquired.isEmpty()) {
+                return;
+            }
+
+            // Bù trừ theo kết quả transaction: commit -> token đã thành tồn kho bị trừ; rollback -> trả token
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    settle(status != STATUS_COMMITTED);
+                }
+            });
+            bound = true;
+        }
+
+        /**
+         * Checkout kết thúc mà chưa gắn được vào transaction (lỗi trước đó): trả token
+         */
+        public void releaseIfUnbound() {
+            if (!bound) {
+                settle(true);
+            }
+        }
+
+        private void settle(boolean returnTokens) {
+            if (settled.compareAndSet(false, true)) {
+                release(acquired, returnTokens);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.flash-sale.reconcile-interval-ms:2000}")
+    public void reconcile() {
+        if (counters.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> inFlightBefore = new HashMap<>();
+        counters.forEach((productId, counter) -> inFlightBefore.put(productId, counter.inFlight.get()));
+
+        for (Product product : productRepository.findAllById(inFlightBefore.keySet())) {
+            Counter counter = counters.get(product.getId());
+            // Bỏ qua lượt này nếu có checkout kết thúc trong lúc đọc DB, tránh đọc lệch
+            if (counter == null || counter.inFlight.get() != inFlightBefore.get(product.getId())) {
+                continue;
+            }
+            int expected = Math.max(0, stockOf(product) - counter.inFlight.get());
+            int previous = counter.available.getAndSet(expected);
+            if (previous != expected) {
+                log.debug("Reconciled flash sale product #{}: {} -> {} tokens", product.getId(), previous, expected);
+            }
+        }
+    }
+
+    private boolean tryAcquire(Counter counter, int qty) {
+        while (true) {
+            int current = counter.available.get();
+            if (current < qty) {
+                return false;
+            }
+            if (counter.available.compareAndSet(current, current - qty)) {
+                counter.inFlight.addAndGet(qty);
+                return true;
+            }
+        }
+    }
+
+    private void release(Map<Long, Integer> acquired, boolean returnTokens) {
+        acquired.forEach((productId, qty) -> {
+            Counter counter = counters.get(productId);
+            if (counter != null) {
+                counter.inFlight.addAndGet(-qty);
+                if (returnTokens) {
+                    counter.available.addAndGet(qty);
+                }
+            }
+        });
+    }
+
+    private int stockOf(Product product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+    }
+
+    private FlashSaleProductResponse toResponse(Long productId, Counter counter) {
+        return FlashSaleProductResponse.builder()
+                .productId(productId)
+                .availableTokens(counter.available.get())
+                .inFlight(counter.inFlight.get())
+                .build();
+    }
+}
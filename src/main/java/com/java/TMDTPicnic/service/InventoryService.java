@@ -0,0 +1,45 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Product;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    private final ProductRepository productRepository;
+
+    /**
+     * Trừ tồn kho nguyên tử cho tất cả dòng hàng của một đơn.
+     * Nếu có bất kỳ sản phẩm nào không đủ hàng thì ném lỗi để rollback toàn bộ đơn hàng.
+     *
+     * @param quantities productId -> tổng số lượng cần trừ
+     */
+    @Transactional
+    public void decrementStock(Map<Long, Integer> quantities) {
+        List<Long> failedIds = productRepository.decrementStockIfAvailable(quantities);
+        if (failedIds.isEmpty()) {
+            return;
+        }
+
+        String names = productRepository.findAllById(failedIds).stream()
+                .map(Product::getName)
+                .collect(Collectors.joining(", "));
+        throw new RuntimeException("Product " + (names.isEmpty() ? failedIds.toString() : names) + " out of stock");
+    }
+
+    /**
+     * Hoàn lại tồn kho (khi hủy đơn hoặc hết hạn giữ hàng)
+     */
+    @Transactional
+    public void restoreStock(Map<Long, Integer> quantities) {
+        productRepository.incrementStock(quantities);
+    }
+}
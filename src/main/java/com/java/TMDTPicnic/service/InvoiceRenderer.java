@@ -0,0 +1,177 @@
+package com.java.TMDTPicnic.service;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.colors.Color;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Image;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.TextAlignment;
+import com.itextpdf.layout.properties.UnitValue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Vẽ hóa đơn PDF từ dữ liệu đã nạp sẵn (không chạm DB).
+ * Font và logo được đọc/parse một lần khi khởi động rồi dùng chung cho mọi hóa đơn và mọi thread;
+ * PdfFont gắn với từng PdfDocument nên chỉ phần đó được tạo lại cho mỗi file.
+ */
+@Component
+@Slf4j
+public class InvoiceRenderer {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+    private static final Locale VIETNAM = Locale.forLanguageTag("vi-VN");
+    private static final Color HEADER_BACKGROUND = new DeviceRgb(46, 125, 50);
+    private static final Color HEADER_TEXT = new DeviceRgb(255, 255, 255);
+    private static final float[] ITEM_COLUMN_WIDTHS = {6, 50, 10, 17, 17};
+
+    /**
+     * Dữ liệu một hóa đơn
+     */
+    public record InvoiceData(
+            Long orderId,
+            LocalDateTime createdAt,
+            String orderType,
+            String customerName,
+            String customerEmail,
+            String couponCode,
+            BigDecimal totalAmount,
+            String paymentMethod,
+            String paymentStatus,
+            LocalDateTime paidAt,
+            List<Line> lines
+    ) {}
+
+    public record Line(String productName, int qty, BigDecimal unitPrice) {}
+
+    private final FontProgram fontProgram; // null -> Helvetica (không có dấu tiếng Việt)
+    private final ImageData logo;
+
+    public InvoiceRenderer(@Value("${app.invoice.font-path:}") String fontPath,
+                           @Value("${app.invoice.logo-path:}") String logoPath) throws IOException {
+        if (fontPath != null && !fontPath.isBlank()) {
+            this.fontProgram = FontProgramFactory.createFont(Files.readAllBytes(Path.of(fontPath)));
+        } else {
+            this.fontProgram = null;
+            log.warn("app.invoice.font-path is not set, invoices fall back to Helvetica without Vietnamese glyphs");
+        }
+        this.logo = logoPath != null && !logoPath.isBlank()
+                ? ImageDataFactory.create(Files.readAllBytes(Path.of(logoPath)))
+                : null;
+    }
+
+    /**
+     * Ghi hóa đơn ra out (out bị đóng khi xong)
+     */
+    public void render(InvoiceData data, OutputStream out) throws IOException {
+        PdfDocument pdf = new PdfDocument(new PdfWriter(out));
+        try (Document document = new Document(pdf, PageSize.A4)) {
+            document.setMargins(36, 36, 36, 36);
+            document.setFont(newFont()).setFontSize(10);
+
+            if (logo != null) {
+                document.add(new Image(logo).scaleToFit(120, 60));
+            }
+            document.add(new Paragraph("HÓA ĐƠN BÁN HÀNG")
+                    .setBold()
+                    .setFontSize(16)
+                    .setTextAlignment(TextAlignment.CENTER));
+
+            document.add(new Paragraph("Mã đơn: #" + data.orderId()
+                    + "\nNgày đặt: " + formatDateTime(data.createdAt())
+                    + "\nLoại đơn: " + text(data.orderType())
+                    + "\nKhách hàng: " + text(data.customerName())
+                    + "\nEmail: " + text(data.customerEmail())));
+
+            document.add(itemTable(data.lines()));
+
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (Line line : data.lines()) {
+                subtotal = subtotal.add(lineTotal(line));
+            }
+            StringBuilder summary = new StringBuilder()
+                    .append("Tạm tính: ").append(formatMoney(subtotal));
+            if (data.couponCode() != null) {
+                summary.append("\nMã giảm giá: ").append(data.couponCode())
+                        .append(" (-").append(formatMoney(subtotal.subtract(data.totalAmount()))).append(")");
+            }
+            summary.append("\nTổng thanh toán: ").append(formatMoney(data.totalAmount()));
+            document.add(new Paragraph(summary.toString()).setTextAlignment(TextAlignment.RIGHT).setBold());
+
+            document.add(new Paragraph("Phương thức thanh toán: " + text(data.paymentMethod())
+                    + "\nTrạng thái thanh toán: " + text(data.paymentStatus())
+                    + "\nThời gian thanh toán: " + formatDateTime(data.paidAt())));
+        }
+    }
+
+    private Table itemTable(List<Line> lines) {
+        Table table = new Table(UnitValue.createPercentArray(ITEM_COLUMN_WIDTHS)).useAllAvailableWidth();
+        for (String header : new String[]{"#", "Sản phẩm", "SL", "Đơn giá", "Thành tiền"}) {
+            table.addHeaderCell(new Cell()
+                    .add(new Paragraph(header).setBold().setFontColor(HEADER_TEXT))
+                    .setBackgroundColor(HEADER_BACKGROUND));
+        }
+
+        int index = 1;
+        for (Line line : lines) {
+            table.addCell(String.valueOf(index++));
+            table.addCell(text(line.productName()));
+            table.addCell(new Cell().add(new Paragraph(String.valueOf(line.qty())).setTextAlignment(TextAlignment.RIGHT)));
+            table.addCell(new Cell().add(new Paragraph(formatMoney(line.unitPrice())).setTextAlignment(TextAlignment.RIGHT)));
+            table.addCell(new Cell().add(new Paragraph(formatMoney(lineTotal(line))).setTextAlignment(TextAlignment.RIGHT)));
+        }
+        return table;
+    }
+
+    private PdfFont newFont() throws IOException {
+        if (fontProgram == null) {
+            return PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        }
+        return PdfFontFactory.createFont(fontProgram, PdfEncodings.IDENTITY_H,
+                PdfFontFactory.EmbeddingStrategy.PREFER_EMBEDDED);
+    }
+
+    private static BigDecimal lineTotal(Line line) {
+        return line.unitPrice() != null ? line.unitPrice().multiply(BigDecimal.valueOf(line.qty())) : BigDecimal.ZERO;
+    }
+
+    private static String formatMoney(BigDecimal amount) {
+        if (amount == null) {
+            return "";
+        }
+        return String.format(VIETNAM, "%,d VND", amount.setScale(0, RoundingMode.HALF_UP).longValue());
+    }
+
+    private static String formatDateTime(LocalDateTime time) {
+        return time != null ? DATE_TIME.format(time) : "";
+    }
+
+    private static String text(String value) {
+        return value != null ? value : "";
+    }
+}
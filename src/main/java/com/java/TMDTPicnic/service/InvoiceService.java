@@ -0,0 +1,244 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.InvoiceBulkResponse;
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.entity.OrderItem;
+import com.java.TMDTPicnic.entity.Payment;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hóa đơn PDF cho các đơn đã thanh toán, lưu thành file invoice-{orderId}.pdf trong app.invoice.output-dir.
+ * - File đã có thì trả lại luôn, không vẽ lại
+ * - Nhiều request cùng lúc cho một đơn chỉ vẽ một lần, các request còn lại chờ kết quả đó
+ * - Tạo hàng loạt (cuối tháng) chạy trên invoiceExecutor có giới hạn thread và hàng đợi
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InvoiceService {
+
+    private static final Set<OrderStatus> INVOICEABLE_STATUSES =
+            EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.COMPLETED);
+    private static final int BULK_PAGE_SIZE = 500;
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final PaymentRepository paymentRepository;
+    private final InvoiceRenderer invoiceRenderer;
+    private final ThreadPoolTaskExecutor invoiceExecutor;
+
+    private final Map<Long, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${app.invoice.output-dir:invoices}")
+    private String outputDir;
+
+    private enum Outcome { GENERATED, CACHED, FAILED }
+
+    /**
+     * Hóa đơn của một đơn cho user hiện tại (admin xem được mọi đơn)
+     */
+    public Path getInvoice(Long orderId, Long userId, boolean admin) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+
+        if (!admin && (order.getUser() == null || !order.getUser().getId().equals(userId))) {
+            throw new RuntimeException("Bạn không có quyền xem hóa đơn của đơn hàng này");
+        }
+        if (!INVOICEABLE_STATUSES.contains(order.getStatus())) {
+            throw new RuntimeException("Chỉ xuất hóa đơn cho đơn hàng đã thanh toán. Trạng thái hiện tại: " + order.getStatus());
+        }
+        return ensureInvoice(orderId);
+    }
+
+    /**
+     * Tạo hóa đơn cho mọi đơn đã thanh toán tạo trong [fromDate, toDate]
+     */
+    public InvoiceBulkResponse generateForRange(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+            throw new RuntimeException("Khoảng ngày tạo hóa đơn không hợp lệ");
+        }
+
+        long started = System.nanoTime();
+        int total = 0;
+        int generated = 0;
+        int cached = 0;
+        int failed = 0;
+
+        long afterId = 0;
+        List<Long> orderIds;
+        do {
+            orderIds = orderRepository.findIdsByStatusInAndCreatedAtRange(INVOICEABLE_STATUSES,
+                    fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), afterId,
+                    PageRequest.of(0, BULK_PAGE_SIZE));
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            afterId = orderIds.get(orderIds.size() - 1);
+            total += orderIds.size();
+
+            // Hàng đợi của pool có giới hạn, đầy thì thread hiện tại tự vẽ (CallerRunsPolicy) nên không dồn việc vô hạn
+            List<CompletableFuture<Outcome>> futures = new ArrayList<>(orderIds.size());
+            for (Long orderId : orderIds) {
+                futures.add(CompletableFuture.supplyAsync(() -> generate(orderId), invoiceExecutor));
+            }
+            for (CompletableFuture<Outcome> future : futures) {
+                switch (future.join()) {
+                    case GENERATED -> generated++;
+                    case CACHED -> cached++;
+                    case FAILED -> failed++;
+                }
+            }
+        } while (orderIds.size() == BULK_PAGE_SIZE);
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Bulk invoices {}..{}: {} orders, {} generated, {} cached, {} failed in {} ms",
+                fromDate, toDate, total, generated, cached, failed, elapsedMs);
+
+        return InvoiceBulkResponse.builder()
+                .fromDate(fromDate)
+                .toDate(toDate)
+                .totalOrders(total)
+                .generated(generated)
+                .cached(cached)
+                .failed(failed)
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    /**
+     * Đầu tháng: tạo hóa đơn cho toàn bộ đơn đã thanh toán của tháng trước.
+     * Chạy lâu và có thể tự vẽ PDF (CallerRunsPolicy) nên scheduler cần nhiều thread (spring.task.scheduling.pool.size);
+     * không đẩy sang invoiceExecutor vì thread điều phối chờ chính pool đó sẽ kẹt khi pool chỉ có một thread
+     */
+    @Scheduled(cron = "${app.invoice.monthly-cron:0 0 2 1 * *}")
+    public void generatePreviousMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        generateForRange(month.atDay(1), month.atEndOfMonth());
+    }
+
+    private Outcome generate(Long orderId) {
+        if (Files.exists(invoicePath(orderId))) {
+            return Outcome.CACHED;
+        }
+        try {
+            ensureInvoice(orderId);
+            return Outcome.GENERATED;
+        } catch (RuntimeException e) {
+            log.warn("Failed to generate invoice for order #{}", orderId, e);
+            return Outcome.FAILED;
+        }
+    }
+
+    /**
+     * File hóa đơn của đơn, vẽ nếu chưa có. Mỗi đơn chỉ có tối đa một lượt vẽ tại một thời điểm
+     */
+    private Path ensureInvoice(Long orderId) {
+        Path file = invoicePath(orderId);
+        if (Files.exists(file)) {
+            return file;
+        }
+
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(orderId, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            if (!Files.exists(file)) {
+                renderToFile(orderId, file);
+            }
+            mine.complete(file);
+            return file;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(orderId, mine);
+        }
+    }
+
+    private void renderToFile(Long orderId, Path file) {
+        InvoiceRenderer.InvoiceData data = loadInvoiceData(orderId);
+        try {
+            Files.createDirectories(file.getParent());
+            // Ghi ra file tạm rồi đổi tên, không bao giờ để lại file PDF dở dang ở đường dẫn chính
+            Path tmp = Files.createTempFile(file.getParent(), "invoice-" + orderId + "-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tmp)) {
+                    invoiceRenderer.render(data, out);
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Không thể tạo hóa đơn cho đơn hàng #" + orderId, e);
+        }
+        log.debug("Rendered invoice for order #{} to {}", orderId, file);
+    }
+
+    private InvoiceRenderer.InvoiceData loadInvoiceData(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        if (!INVOICEABLE_STATUSES.contains(order.getStatus())) {
+            throw new RuntimeException("Chỉ xuất hóa đơn cho đơn hàng đã thanh toán. Trạng thái hiện tại: " + order.getStatus());
+        }
+
+        List<InvoiceRenderer.Line> lines = new ArrayList<>();
+        for (OrderItem item : orderItemRepository.findByOrderIdWithProduct(orderId)) {
+            lines.add(new InvoiceRenderer.Line(
+                    item.getProduct() != null ? item.getProduct().getName() : null,
+                    item.getQty() != null ? item.getQty() : 0,
+                    item.getUnitPrice()));
+        }
+        Payment payment = paymentRepository.findByOrderId(orderId).orElse(null);
+
+        return new InvoiceRenderer.InvoiceData(
+                order.getId(),
+                order.getCreatedAt(),
+                order.getOrderType(),
+                order.getUser() != null ? order.getUser().getFullName() : null,
+                order.getUser() != null ? order.getUser().getEmail() : null,
+                order.getCoupon() != null ? order.getCoupon().getCode() : null,
+                order.getTotalAmount(),
+                payment != null ? payment.getPaymentMethod() : null,
+                payment != null && payment.getStatus() != null ? payment.getStatus().name() : null,
+                payment != null ? payment.getPaidAt() : null,
+                lines);
+    }
+
+    private Path invoicePath(Long orderId) {
+        return Path.of(outputDir, "invoice-" + orderId + ".pdf");
+    }
+}
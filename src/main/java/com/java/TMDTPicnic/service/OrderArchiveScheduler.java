@@ -0,0 +1,46 @@
+package com.java.TMDTPicnic.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Chạy job lưu trữ đơn mỗi đêm: lặp từng lô cho đến khi hết đơn cần chuyển.
+ * Lô lỗi thì dừng lượt này, những lô đã commit vẫn giữ nguyên.
+ * Lượt chạy có thể kéo dài nên chiếm một thread riêng của scheduler (spring.task.scheduling.pool.size).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveScheduler {
+
+    private final OrderArchiveService orderArchiveService;
+
+    @Value("${app.order-archive.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "${app.order-archive.cron:0 30 3 * * *}")
+    public void archiveClosedOrders() {
+        // Cố định mốc cho cả lượt chạy để các lô không đuổi theo đồng hồ
+        LocalDateTime cutoff = orderArchiveService.archiveCutoff();
+        long started = System.nanoTime();
+        int total = 0;
+        int moved;
+        do {
+            try {
+                moved = orderArchiveService.archiveBatch(cutoff, batchSize);
+            } catch (RuntimeException e) {
+                log.error("Order archive batch failed after {} orders, resuming next run", total, e);
+                break;
+            }
+            total += moved;
+        } while (moved == batchSize);
+
+        log.info("Archived {} orders created before {} in {} ms",
+                total, cutoff, (System.nanoTime() - started) / 1_000_000);
+    }
+}
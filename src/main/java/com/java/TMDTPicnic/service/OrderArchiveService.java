@@ -0,0 +1,58 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.repository.OrderRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Chuyển đơn COMPLETED/CANCELLED cũ hơn app.order-archive.min-age-days sang các bảng *_archive.
+ * Mỗi lô là một transaction (chép rồi xóa), lỗi giữa chừng thì lô đó rollback nguyên vẹn,
+ * lần chạy sau tiếp tục từ những đơn còn lại ở bảng chính.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveService {
+
+    private final OrderRepository orderRepository;
+
+    @Value("${app.order-archive.min-age-days:180}")
+    private int minAgeDays;
+
+    /**
+     * Chuyển tối đa limit đơn tạo trước cutoff sang bảng lưu trữ
+     *
+     * @return số đơn đã chuyển (nhỏ hơn limit nghĩa là đã hết đơn cần chuyển)
+     */
+    @Transactional
+    public int archiveBatch(LocalDateTime cutoff, int limit) {
+        // SKIP LOCKED: đơn đang bị giao dịch khác giữ thì để lần sau, không chờ khóa
+        List<Long> orderIds = orderRepository.lockArchivableOrderIds(cutoff, limit);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        int moved = orderRepository.moveToArchive(orderIds, LocalDateTime.now());
+        log.debug("Archived {} orders (#{}..#{})", moved, orderIds.get(0), orderIds.get(orderIds.size() - 1));
+        return moved;
+    }
+
+    /**
+     * Mốc tạo đơn: đơn tạo trước mốc này mới có thể nằm trong bảng lưu trữ
+     */
+    public LocalDateTime archiveCutoff() {
+        return LocalDateTime.now().minusDays(minAgeDays);
+    }
+
+    /**
+     * false khi chắc chắn không có đơn lưu trữ nào tạo từ createdAt trở về sau
+     */
+    public boolean mayContainArchived(LocalDateTime createdAt) {
+        return createdAt == null || createdAt.isBefore(archiveCutoff());
+    }
+}
@@ -0,0 +1,95 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.OrderDetailResponse;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache OrderDetailResponse đã ghép sẵn theo orderId (read-through).
+ * - Đơn COMPLETED/CANCELLED không đổi nữa nên được giữ lâu, đơn còn đang xử lý chỉ giữ trong thời gian ngắn
+ * - Mọi chuyển trạng thái phải gọi evict; entry bị xóa ngay và xóa lần nữa khi transaction kết thúc,
+ *   để lượt đọc chen giữa (thấy dữ liệu chưa commit) không để lại bản cũ
+ * - Bản đọc cũ chen vào sau commit chỉ có thể mang trạng thái chưa kết thúc nên tự hết hạn sau TTL ngắn
+ */
+@Component
+@Slf4j
+public class OrderDetailCache {
+
+    @Value("${app.order-detail-cache.terminal-ttl-seconds:3600}")
+    private long terminalTtlSeconds;
+
+    @Value("${app.order-detail-cache.active-ttl-seconds:30}")
+    private long activeTtlSeconds;
+
+    @Value("${app.order-detail-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private Map<Long, Entry> entries;
+
+    private record Entry(OrderDetailResponse detail, long expiresAtNanos) {}
+
+    @PostConstruct
+    void init() {
+        entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Lấy chi tiết đơn từ cache, chưa có hoặc hết hạn thì ghép lại bằng loader rồi lưu vào cache
+     */
+    public OrderDetailResponse get(Long orderId, Supplier<OrderDetailResponse> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(orderId);
+        if (entry != null && now - entry.expiresAtNanos() < 0) {
+            return entry.detail();
+        }
+
+        OrderDetailResponse detail = loader.get();
+        entries.put(orderId, new Entry(detail, now + ttlFor(detail.getStatus()).toNanos()));
+        return detail;
+    }
+
+    public void evict(Long orderId) {
+        evictAll(List.of(orderId));
+    }
+
+    public void evictAll(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(orderIds);
+        ids.forEach(entries::remove);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ids.forEach(entries::remove);
+                }
+            });
+        }
+        log.debug("Evicted order detail cache for orders {}", ids);
+    }
+
+    private Duration ttlFor(OrderStatus status) {
+        boolean terminal = status == OrderStatus.COMPLETED || status == OrderStatus.CANCELLED;
+        return Duration.ofSeconds(terminal ? terminalTtlSeconds : activeTtlSeconds);
+    }
+}
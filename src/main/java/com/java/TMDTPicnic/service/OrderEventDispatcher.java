@@ -0,0 +1,102 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lấy sự kiện từ outbox theo lô và chạy các handler trên thread pool riêng.
+ * Sự kiện của cùng một đơn được xử lý tuần tự theo thứ tự ghi (claimDue không lấy sự kiện khi đơn còn
+ * sự kiện cũ hơn chưa xong), các đơn khác nhau chạy song song.
+ * Handler lỗi -> sự kiện được thử lại với backoff (at-least-once).
+ */
+@Component
+@Slf4j
+public class OrderEventDispatcher {
+
+    private final OrderEventService orderEventService;
+    private final ThreadPoolTaskExecutor orderEventExecutor;
+    private final Map<OrderEventType, List<OrderEventHandler>> handlersByType = new EnumMap<>(OrderEventType.class);
+
+    @Value("${app.order-events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.order-events.retention-days:7}")
+    private int retentionDays;
+
+    public OrderEventDispatcher(OrderEventService orderEventService,
+                                ThreadPoolTaskExecutor orderEventExecutor,
+                                List<OrderEventHandler> handlers) {
+        this.orderEventService = orderEventService;
+        this.orderEventExecutor = orderEventExecutor;
+        for (OrderEventHandler handler : handlers) {
+            for (OrderEventType type : handler.supportedTypes()) {
+                handlersByType.computeIfAbsent(type, t -> new ArrayList<>()).add(handler);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-events.poll-interval-ms:500}")
+    public void dispatch() {
+        List<OrderEvent> batch;
+        do {
+            batch = orderEventService.claimDue(batchSize);
+            if (!batch.isEmpty()) {
+                processBatch(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${app.order-events.purge-cron:0 30 3 * * *}")
+    public void purgeProcessed() {
+        int deleted = orderEventService.purgeProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} processed order events", deleted);
+        }
+    }
+
+    private void processBatch(List<OrderEvent> batch) {
+        // Gom theo đơn hàng, giữ thứ tự id trong từng đơn
+        Map<Long, List<OrderEvent>> byOrder = new LinkedHashMap<>();
+        for (OrderEvent event : batch) {
+            byOrder.computeIfAbsent(event.getOrderId(), id -> new ArrayList<>()).add(event);
+        }
+
+        Queue<Long> doneIds = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (List<OrderEvent> orderEvents : byOrder.values()) {
+            futures.add(CompletableFuture.runAsync(() -> processOrderEvents(orderEvents, doneIds), orderEventExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        orderEventService.markDone(doneIds);
+    }
+
+    private void processOrderEvents(List<OrderEvent> orderEvents, Queue<Long> doneIds) {
+        for (int i = 0; i < orderEvents.size(); i++) {
+            OrderEvent event = orderEvents.get(i);
+            try {
+                Map<String, Object> payload = orderEventService.readPayload(event);
+                for (OrderEventHandler handler : handlersByType.getOrDefault(event.getEventType(), List.of())) {
+                    handler.handle(event, payload);
+                }
+                doneIds.add(event.getId());
+            } catch (Exception e) {
+                log.warn("Order event #{} ({}) for order #{} failed on attempt {}: {}",
+                        event.getId(), event.getEventType(), event.getOrderId(), event.getAttempts(), e.getMessage());
+                orderEventService.markFailed(event.getId(), e.getMessage());
+                // Sự kiện sau của cùng đơn chỉ được lấy lại sau khi sự kiện này DONE/FAILED
+                return;
+            }
+        }
+    }
+}
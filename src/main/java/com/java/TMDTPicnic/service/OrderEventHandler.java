@@ -0,0 +1,18 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Xử lý một loại sự kiện đơn hàng từ outbox.
+ * Sự kiện được giao ít nhất một lần (at-least-once) nên handler phải idempotent.
+ */
+public interface OrderEventHandler {
+
+    Set<OrderEventType> supportedTypes();
+
+    void handle(OrderEvent event, Map<String, Object> payload);
+}
@@ -0,0 +1,139 @@
+package com.java.TMDTPicnic.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventStatus;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.repository.OrderEventRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Outbox sự kiện đơn hàng:
+ * - publish: ghi sự kiện trong CÙNG transaction với thay đổi của Order (bắt buộc có transaction)
+ * - claimDue / markDone / markFailed: dùng bởi OrderEventDispatcher
+ * - claimDue chỉ trả sự kiện chưa xong cũ nhất của mỗi đơn, nên sự kiện của một đơn được giao đúng thứ tự
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderEventService {
+
+    private final OrderEventRepository orderEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.order-events.max-attempts:10}")
+    private int maxAttempts;
+
+    // Thời gian "thuê" một sự kiện đã lấy ra; quá hạn mà chưa xong thì sự kiện được lấy lại
+    @Value("${app.order-events.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publish(OrderEventType type, Order order, OrderStatus previousStatus, Map<String, Object> extra) {
+        orderEventRepository.save(buildEvent(type, order, previousStatus, extra, LocalDateTime.now()));
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publishAll(OrderEventType type, Collection<Order> orders, OrderStatus previousStatus) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEvent> events = new ArrayList<>();
+        for (Order order : orders) {
+            events.add(buildEvent(type, order, previousStatus, null, now));
+        }
+        orderEventRepository.saveAll(events);
+    }
+
+    @Transactional
+    public List<OrderEvent> claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEvent> events = orderEventRepository.findDueForUpdate(now, limit);
+        for (OrderEvent event : events) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setAvailableAt(now.plusSeconds(leaseSeconds));
+        }
+        return events;
+    }
+
+    @Transactional
+    public void markDone(Collection<Long> eventIds) {
+        if (!eventIds.isEmpty()) {
+            orderEventRepository.markProcessed(eventIds, OrderEventStatus.DONE, LocalDateTime.now());
+        }
+    }
+
+    @Transactional
+    public void markFailed(Long eventId, String error) {
+        orderEventRepository.findById(eventId).ifPresent(event -> {
+            event.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(OrderEventStatus.FAILED);
+                event.setProcessedAt(LocalDateTime.now());
+                log.error("Order event #{} ({}) for order #{} failed after {} attempts: {}",
+                        event.getId(), event.getEventType(), event.getOrderId(), event.getAttempts(), error);
+            } else {
+                // Backoff lũy thừa: 2, 4, 8, ... giây, tối đa 10 phút
+                long delaySeconds = Math.min(600, 1L << Math.min(event.getAttempts(), 10));
+                event.setAvailableAt(LocalDateTime.now().plusSeconds(delaySeconds));
+            }
+        });
+    }
+
+    @Transactional
+    public int purgeProcessedBefore(LocalDateTime before) {
+        return orderEventRepository.deleteProcessedBefore(before);
+    }
+
+    public Map<String, Object> readPayload(OrderEvent event) {
+        if (event.getPayload() == null || event.getPayload().isBlank()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(event.getPayload(), new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Invalid payload for order event #" + event.getId(), e);
+        }
+    }
+
+    private OrderEvent buildEvent(OrderEventType type, Order order, OrderStatus previousStatus,
+                                  Map<String, Object> extra, LocalDateTime now) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderType", order.getOrderType());
+        payload.put("status", order.getStatus() != null ? order.getStatus().name() : null);
+        payload.put("previousStatus", previousStatus != null ? previousStatus.name() : null);
+        payload.put("userId", order.getUser() != null ? order.getUser().getId() : null);
+        payload.put("sharedCartId", order.getSharedCart() != null ? order.getSharedCart().getId() : null);
+        payload.put("totalAmount", order.getTotalAmount());
+        payload.put("createdAt", order.getCreatedAt() != null ? order.getCreatedAt().toString() : null);
+        if (extra != null) {
+            payload.putAll(extra);
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Cannot serialize order event payload", e);
+        }
+
+        return OrderEvent.builder()
+                .eventType(type)
+                .orderId(order.getId())
+                .payload(json)
+                .status(OrderEventStatus.PENDING)
+                .attempts(0)
+                .availableAt(now)
+                .createdAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,288 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.OrderRepositoryCustom.OrderExportRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Xuất đơn hàng (mỗi dòng hàng một dòng) ra CSV hoặc XLSX, ghi thẳng vào output stream của response.
+ * Dữ liệu đi theo con trỏ JDBC -> writer -> stream nên bộ nhớ dùng không phụ thuộc số dòng:
+ * CSV không giữ gì, XLSX (SXSSF) chỉ giữ cửa sổ ROW_WINDOW dòng, phần còn lại được xả ra file tạm.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderExportService {
+
+    private static final int ROW_WINDOW = 100;
+
+    static final String[] HEADERS = {
+            "Mã đơn", "Ngày tạo", "Trạng thái", "Loại đơn", "Mã user", "Email",
+            "Tổng tiền", "Mã giảm giá", "Phương thức TT", "Trạng thái TT",
+            "Mã sản phẩm", "Tên sản phẩm", "Số lượng", "Đơn giá"
+    };
+
+    private final OrderRepository orderRepository;
+
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /**
+     * Ghi các đơn tạo trong [fromDate, toDate] (tính cả ngày toDate) vào out
+     *
+     * @return số dòng đã ghi (không tính header)
+     */
+    public long export(LocalDate fromDate, LocalDate toDate, Format format, OutputStream out) throws IOException {
+        if (fromDate == null || toDate == null || toDate.isBefore(fromDate)) {
+            throw new RuntimeException("Khoảng ngày xuất file không hợp lệ");
+        }
+
+        long started = System.nanoTime();
+        long rows;
+        try (RowWriter writer = openWriter(format, out)) {
+            orderRepository.streamExportRows(fromDate.atStartOfDay(), toDate.plusDays(1).atStartOfDay(), writer::write);
+            writer.finish();
+            rows = writer.rowCount();
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // client ngắt kết nối giữa chừng
+        }
+
+        log.info("Exported {} order rows ({}) for {}..{} in {} ms",
+                rows, format, fromDate, toDate, (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    /**
+     * Writer theo định dạng, nhận từng dòng và ghi ngay ra out.
+     * finish() hoàn tất file, close() dọn tài nguyên tạm; cả hai đều không đóng out
+     */
+    public static RowWriter openWriter(Format format, OutputStream out) {
+        return format == Format.XLSX ? new XlsxRowWriter(out) : new CsvRowWriter(out);
+    }
+
+    public interface RowWriter extends AutoCloseable {
+
+        void write(OrderExportRow row);
+
+        void finish() throws IOException;
+
+        long rowCount();
+
+        @Override
+        void close();
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+
+        private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        private final Writer writer;
+        private long rowCount;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            try {
+                writer.write('\uFEFF'); // BOM để Excel nhận đúng UTF-8 (tiếng Việt)
+                writeLine(HEADERS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(OrderExportRow row) {
+            try {
+                writeLine(new String[]{
+                        text(row.orderId()), row.createdAt() != null ? DATE_TIME.format(row.createdAt()) : "",
+                        row.status(), row.orderType(), text(row.userId()), row.userEmail(),
+                        text(row.totalAmount()), row.couponCode(), row.paymentMethod(), row.paymentStatus(),
+                        text(row.productId()), row.productName(), text(row.qty()), text(row.unitPrice())
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rowCount++;
+        }
+
+        @Override
+        public long rowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeValue(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeValue(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                    || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+            if (!quote) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        private static String text(Object value) {
+            if (value == null) {
+                return "";
+            }
+            return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        }
+    }
+
+    private static final class XlsxRowWriter implements RowWriter {
+
+        private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private final CellStyle dateTimeStyle;
+        private SXSSFSheet sheet;
+        private int sheetRow;
+        private long rowCount;
+
+        XlsxRowWriter(OutputStream out) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+            this.workbook.setCompressTempFiles(true);
+            this.dateTimeStyle = workbook.createCellStyle();
+            this.dateTimeStyle.setDataFormat(workbook.getCreationHelper()
+                    .createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+            newSheet();
+        }
+
+        @Override
+        public void write(OrderExportRow row) {
+            // Một sheet tối đa 1.048.576 dòng, vượt quá thì sang sheet mới
+            if (sheetRow > MAX_ROWS_PER_SHEET) {
+                newSheet();
+            }
+            Row sheetLine = sheet.createRow(sheetRow++);
+            int col = 0;
+            setNumber(sheetLine, col++, row.orderId());
+            setDateTime(sheetLine, col++, row.createdAt());
+            setText(sheetLine, col++, row.status());
+            setText(sheetLine, col++, row.orderType());
+            setNumber(sheetLine, col++, row.userId());
+            setText(sheetLine, col++, row.userEmail());
+            setNumber(sheetLine, col++, row.totalAmount());
+            setText(sheetLine, col++, row.couponCode());
+            setText(sheetLine, col++, row.paymentMethod());
+            setText(sheetLine, col++, row.paymentStatus());
+            setNumber(sheetLine, col++, row.productId());
+            setText(sheetLine, col++, row.productName());
+            setNumber(sheetLine, col++, row.qty());
+            setNumber(sheetLine, col, row.unitPrice());
+            rowCount++;
+        }
+
+        @Override
+        public long rowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            workbook.dispose(); // xóa các file tạm của SXSSF
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                log.warn("Failed to close export workbook", e);
+            }
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet("Orders " + (workbook.getNumberOfSheets() + 1));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                header.createCell(i).setCellValue(HEADERS[i]);
+            }
+            sheetRow = 1;
+        }
+
+        private void setText(Row row, int col, String value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+
+        private void setNumber(Row row, int col, Number value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value.doubleValue());
+            }
+        }
+
+        private void setDateTime(Row row, int col, LocalDateTime value) {
+            if (value != null) {
+                Cell cell = row.createCell(col);
+                cell.setCellValue(value);
+                cell.setCellStyle(dateTimeStyle);
+            }
+        }
+    }
+}
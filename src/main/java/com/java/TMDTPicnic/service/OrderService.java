@@ -1,8 +1,10 @@
 package com.java.TMDTPicnic.service;
 
-import com.java.TMDTPicnic.dto.request.ApplyCouponRequest;
+import com.java.TMDTPicnic.dto.request.BulkOrderStatusUpdateRequest;
 import com.java.TMDTPicnic.dto.request.CheckoutRequest;
 import com.java.TMDTPicnic.dto.request.OrderStatusUpdateRequest;
+import com.java.TMDTPicnic.dto.response.BulkOrderStatusItemResponse;
+import com.java.TMDTPicnic.dto.response.BulkOrderStatusUpdateResponse;
 import com.java.TMDTPicnic.dto.response.OrderDetailResponse;
 import com.java.TMDTPicnic.dto.response.OrderHistoryResponse;
 import com.java.TMDTPicnic.dto.response.OrderItemDetailResponse;
@@ -10,6 +12,8 @@ import com.java.TMDTPicnic.dto.response.OrderStatusUpdateResponse;
 import com.java.TMDTPicnic.dto.response.OrderSummaryResponse;
 import com.java.TMDTPicnic.dto.response.PaymentDetailResponse;
 import com.java.TMDTPicnic.entity.*;
+import com.java.TMDTPicnic.enums.BulkTransitionOutcome;
+import com.java.TMDTPicnic.enums.OrderEventType;
 import com.java.TMDTPicnic.enums.OrderStatus;
 import com.java.TMDTPicnic.enums.PaymentMethod;
 import com.java.TMDTPicnic.enums.PaymentStatus;
@@ -21,12 +25,27 @@ import com.java.TMDTPicnic.repository.*;
 import com.java.TMDTPicnic.service.NotificationService;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.data.jpa.domain.Specification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,34 +55,35 @@ import org.slf4j.LoggerFactory;
 public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_BULK_STATUS_UPDATE = 5000;
 
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final PaymentRepository paymentRepository;
-    private final UserRepository userRepository;
-    private final ProductRepository productRepository;
     private final CartItemRepository cartItemRepository;
-    private final VNPayService vnPayService;
     private final SharedCartRepository sharedCartRepository;
-    private final SharedCartItemRepository sharedCartItemRepository;
-    private final SharedCartParticipantRepository sharedCartParticipantRepository;
-    private final NotificationService notificationService;
-    private final CouponService couponService;
+    private final InventoryService inventoryService;
+    private final StockReservationService stockReservationService;
+    private final OrderEventService orderEventService;
+    private final CheckoutPipeline checkoutPipeline;
+    private final OrderDetailCache orderDetailCache;
+    private final OrderArchiveService orderArchiveService;
+    private final FlashSaleGate flashSaleGate;
     private String couponCode;
 
 
-    @Transactional
+    // Không mở transaction ở đây: token flash sale phải lấy trước transaction checkout (trong pipeline)
     public String createOrder(Long userId, CheckoutRequest request, String ipAddress) throws UnsupportedEncodingException {
-        var user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        BigDecimal total = BigDecimal.ZERO;
-
         if ("GROUP".equalsIgnoreCase(request.getOrderType())) {
             List<Long> cartItemIds = new ArrayList<>();
+            List<CheckoutPipeline.Line> requestedLines = new ArrayList<>();
             if (request.getCartItems() != null) {
                 for (var cartItem : request.getCartItems()) {
                     cartItemIds.add(cartItem.getId());
+                    if (cartItem.getProductId() != null && cartItem.getQuantity() != null) {
+                        requestedLines.add(new CheckoutPipeline.Line(cartItem.getProductId(), cartItem.getQuantity(), null));
+                    }
                 }
             }
 
@@ -71,76 +91,29 @@ public class OrderService {
                 throw new RuntimeException("No items selected in cart");
             }
 
-            var cartItems = cartItemRepository.findAllById(cartItemIds);
-
-            for (var item : cartItems) {
-                var product = item.getProduct();
-                if (product.getStockQuantity() < item.getQuantity()) {
-                    throw new RuntimeException("Product " + product.getName() + " out of stock");
+            // Lấy token theo dòng hàng client gửi lên, trước khi chạm DB;
+            // pipeline đối chiếu lại với CartItem thật trong transaction
+            FlashSaleGate.Admission admission = flashSaleGate.admit(CheckoutPipeline.quantities(requestedLines));
+            try {
+                // Chỉ lấy id sản phẩm từ CartItem (không nạp Product), sản phẩm được nạp một lần trong pipeline
+                var cartItems = cartItemRepository.findAllById(cartItemIds);
+                List<CheckoutPipeline.Line> lines = new ArrayList<>();
+                for (var item : cartItems) {
+                    lines.add(new CheckoutPipeline.Line(item.getProduct().getId(), item.getQuantity(), null));
                 }
-                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-            }
-            BigDecimal finalTotal = total;
-            if (request.getCouponCode() != null && !request.getCouponCode().isBlank()) {
-                var applyRequest = new ApplyCouponRequest(request.getCouponCode(), total);
-                var applyResult = couponService.applyCoupon(applyRequest);
-                if (!applyResult.isValid()) {
-                    throw new RuntimeException(applyResult.getMessage());
-                }
-                finalTotal = applyResult.getFinalTotal(); // finalTotal = total * giảm giá (nếu có)
-            }
 
-
-            Order order = Order.builder()
-                    .user(user)
-                    .totalAmount(finalTotal)
-                    .status(OrderStatus.PENDING)
-                    .orderType("GROUP")
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            orderRepository.save(order);
-
-            for (var item : cartItems) {
-                var product = item.getProduct();
-
-                product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
-                productRepository.save(product);
-
-                OrderItem orderItem = OrderItem.builder()
-                        .order(order)
-                        .product(product)
-                        .qty(item.getQuantity())
-                        .unitPrice(product.getPrice())
-                        .build();
-                orderItemRepository.save(orderItem);
-            }
-
-            Payment payment = Payment.builder()
-                    .order(order)
-                    .amount(finalTotal)
-                    .paymentMethod(request.getPaymentMethod().name())
-                    .status(PaymentStatus.PENDING)
-                    .paidAt(null)
-                    .build();
-            paymentRepository.save(payment);
-
-            cartItemRepository.deleteAll(cartItems);
-
-            if (request.getPaymentMethod() == PaymentMethod.COD) {
-                order.setStatus(OrderStatus.PAID);
-                orderRepository.save(order);
-
-                payment.setStatus(PaymentStatus.SUCCESS);
-                payment.setPaidAt(LocalDateTime.now());
-                paymentRepository.save(payment);
-                return ""; // Không cần url thanh toán
-            } else if (request.getPaymentMethod() == PaymentMethod.MOMO) {
-                // Xử lý MOMO ở đây (hiện để trống)
-                return "";
-            } else if (request.getPaymentMethod() == PaymentMethod.VNPAY) {
-                return vnPayService.createPaymentUrl(order.getId(), finalTotal, ipAddress);
-            } else {
-                throw new RuntimeException("Unsupported payment method");
+                return checkoutPipeline.checkout(CheckoutPipeline.Command.builder()
+                        .userId(userId)
+                        .orderType("GROUP")
+                        .lines(lines)
+                        .couponCode(request.getCouponCode())
+                        .paymentMethod(request.getPaymentMethod())
+                        .ipAddress(ipAddress)
+                        .cartItemIds(cartItems.stream().map(CartItem::getId).toList())
+                        .admission(admission)
+                        .build());
+            } finally {
+                admission.releaseIfUnbound();
             }
 
         } else if ("SINGLE".equalsIgnoreCase(request.getOrderType())) {
@@ -148,74 +121,25 @@ public class OrderService {
                 throw new RuntimeException("No items to checkout");
             }
 
+            List<CheckoutPipeline.Line> lines = new ArrayList<>();
             for (var item : request.getDirectItems()) {
-                var product = productRepository.findById(item.getProductId())
-                        .orElseThrow(() -> new RuntimeException("Product not found with id: " + item.getProductId()));
-                if (product.getStockQuantity() < item.getQty()) {
-                    throw new RuntimeException("Product " + product.getName() + " out of stock");
-                }
-                total = total.add(product.getPrice().multiply(BigDecimal.valueOf(item.getQty())));
-            }
-            BigDecimal finalTotal = total;
-            if (request.getCouponCode() != null && !request.getCouponCode().isBlank()) {
-                var applyRequest = new ApplyCouponRequest(request.getCouponCode(), total);
-                var applyResult = couponService.applyCoupon(applyRequest);
-                if (!applyResult.isValid()) {
-                    throw new RuntimeException(applyResult.getMessage());
-                }
-                finalTotal = applyResult.getFinalTotal(); // finalTotal = total * giảm giá (nếu có)
-            }
-
-
-            Order order = Order.builder()
-                    .user(user)
-                    .totalAmount(finalTotal)
-                    .status(OrderStatus.PENDING)
-                    .orderType("SINGLE")
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            orderRepository.save(order);
-
-            for (var item : request.getDirectItems()) {
-                var product = productRepository.findById(item.getProductId())
-                        .orElseThrow(() -> new RuntimeException("Product not found with id: " + item.getProductId()));
-
-                product.setStockQuantity(product.getStockQuantity() - item.getQty());
-                productRepository.save(product);
-
-                OrderItem orderItem = OrderItem.builder()
-                        .order(order)
-                        .product(product)
-                        .qty(item.getQty())
-                        .unitPrice(product.getPrice())
-                        .build();
-                orderItemRepository.save(orderItem);
+                lines.add(new CheckoutPipeline.Line(item.getProductId(), item.getQty(), null));
             }
 
-            Payment payment = Payment.builder()
-                    .order(order)
-                    .amount(finalTotal)
-                    .paymentMethod(request.getPaymentMethod().name())
-                    .status(PaymentStatus.PENDING)
-                    .paidAt(null)
-                    .build();
-            paymentRepository.save(payment);
-
-            if (request.getPaymentMethod() == PaymentMethod.COD) {
-                order.setStatus(OrderStatus.PAID);
-                orderRepository.save(order);
-
-                payment.setStatus(PaymentStatus.SUCCESS);
-                payment.setPaidAt(LocalDateTime.now());
-                paymentRepository.save(payment);
-                return "";
-            } else if (request.getPaymentMethod() == PaymentMethod.MOMO) {
-                // Xử lý MOMO ở đây (hiện để trống)
-                return "";
-            } else if (request.getPaymentMethod() == PaymentMethod.VNPAY) {
-                return vnPayService.createPaymentUrl(order.getId(), finalTotal, ipAddress);
-            } else {
-                throw new RuntimeException("Unsupported payment method");
+            // Lấy token trước khi chạm DB, hết token thì từ chối ngay
+            FlashSaleGate.Admission admission = flashSaleGate.admit(CheckoutPipeline.quantities(lines));
+            try {
+                return checkoutPipeline.checkout(CheckoutPipeline.Command.builder()
+                        .userId(userId)
+                        .orderType("SINGLE")
+                        .lines(lines)
+                        .couponCode(request.getCouponCode())
+                        .paymentMethod(request.getPaymentMethod())
+                        .ipAddress(ipAddress)
+                        .admission(admission)
+                        .build());
+            } finally {
+                admission.releaseIfUnbound();
             }
         } else {
             throw new RuntimeException("Có 2 tham số orderType là SINGLE VÀ GROUP. Nếu mua hàng trực tiếp thì truyền SINGLE, nếu mua nhiều sản phẩm từ giỏ hàng (CartItem) thì truyền GROUP");
@@ -224,148 +148,184 @@ public class OrderService {
 
     @Transactional
     public void updatePaymentStatusAfterSuccess(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
         Payment payment = paymentRepository.findByOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Payment not found for order id: " + orderId));
 
+        // Đã xử lý trước đó (callback lặp lại): không lưu lại đơn và gửi thông báo lần nữa
+        if (payment.getStatus() == PaymentStatus.SUCCESS) {
+            logger.info("Payment for order #{} is already SUCCESS, skipping post-payment work", orderId);
+            return;
+        }
+
+        // Đơn đã bị hủy (user hủy hoặc hết hạn giữ hàng) trước khi tiền về: không mở lại đơn, chờ hoàn tiền
+        if (order.getStatus() != OrderStatus.PENDING) {
+            payment.setStatus(PaymentStatus.REFUND_REQUIRED);
+            payment.setPaidAt(LocalDateTime.now());
+            paymentRepository.save(payment);
+            // Đơn CANCELLED được cache lâu (trạng thái kết thúc): xóa để chi tiết đơn hiện trạng thái payment mới
+            orderDetailCache.evict(orderId);
+            logger.warn("Order #{} was paid while {}, payment marked REFUND_REQUIRED", orderId, order.getStatus());
+            return;
+        }
+
+        // Chuyển giữ hàng thành trừ kho vĩnh viễn
+        stockReservationService.commit(orderId);
+
         order.setStatus(OrderStatus.PAID);
         orderRepository.save(order);
+        orderDetailCache.evict(orderId);
 
         payment.setStatus(PaymentStatus.SUCCESS);
         payment.setPaidAt(LocalDateTime.now());
         paymentRepository.save(payment);
 
-        // Nếu là shared cart order, đóng shared cart và xóa items
+        // Đóng shared cart ngay để không checkout lại được; xóa items và gửi thông báo chạy nền qua outbox
         if ("SHARED_CART".equalsIgnoreCase(order.getOrderType()) && order.getSharedCart() != null) {
             SharedCart sharedCart = order.getSharedCart();
             sharedCart.setStatus(SharedCartStatus.COMPLETED);
             sharedCartRepository.save(sharedCart);
-
-            // Xóa tất cả items trong shared cart
-            List<SharedCartItem> cartItems = sharedCartItemRepository.findBySharedCartId(sharedCart.getId());
-            sharedCartItemRepository.deleteAll(cartItems);
-
-            // Tạo notification cho tất cả participants (trừ người thanh toán)
-            User paidByUser = order.getUser();
-            List<SharedCartParticipant> participants = sharedCartParticipantRepository.findBySharedCartId(sharedCart.getId());
-            for (SharedCartParticipant participant : participants) {
-                if (!participant.getUser().getId().equals(paidByUser.getId())) {
-                    notificationService.createSharedCartCheckoutNotification(
-                            participant.getUser(),
-                            sharedCart,
-                            paidByUser,
-                            payment.getAmount(),
-                            payment.getPaymentMethod()
-                    );
-                }
-            }
-            // Tạo notification cho người thanh toán
-            notificationService.createSharedCartCheckoutNotification(
-                    paidByUser,
-                    sharedCart,
-                    paidByUser,
-                    payment.getAmount(),
-                    payment.getPaymentMethod()
-            );
-
-            logger.info("Closed shared cart #{} and removed all items after successful payment", sharedCart.getId());
         }
+        orderEventService.publish(OrderEventType.ORDER_PAID, order, OrderStatus.PENDING, null);
 
-        logger.info("Updated order #{} status to COMPLETED and payment SUCCESS", orderId);
+        logger.info("Updated order #{} status to PAID and payment SUCCESS", orderId);
     }
 
-    public OrderHistoryResponse getPersonalOrderHistory(Long userId) {
-        logger.info("=== [OrderHistory] Bắt đầu lấy lịch sử mua hàng cá nhân cho userId = {} ===", userId);
+    /**
+     * Lịch sử đơn cá nhân (SINGLE, GROUP), phân trang keyset theo (createdAt, id).
+     * Mỗi trang một câu truy vấn, kèm thumbnail sản phẩm đầu tiên; chỉ hỏi thêm bảng lưu trữ
+     * khi trang có thể chạm tới các đơn đủ cũ để đã bị lưu trữ.
+     *
+     * @param cursor nextCursor của trang trước, null cho trang đầu
+     */
+    public OrderHistoryResponse getPersonalOrderHistory(Long userId, String cursor, int size) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        int pageSize = clampHistoryPageSize(size);
+        List<Object[]> rows = orderRepository.findPersonalHistoryPage(
+                userId, after.createdAt(), after.id(), pageSize + 1);
+        if (needsArchivedRows(rows, pageSize)) {
+            rows = mergeNewestFirst(rows, orderRepository.findArchivedPersonalHistoryPage(
+                    userId, after.createdAt(), after.id(), pageSize + 1), pageSize + 1);
+        }
+        return toHistoryPage(rows, pageSize, "SINGLE");
+    }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        logger.info("User tìm thấy: {}", user.getEmail());
+    /**
+     * Lịch sử đơn từ shared cart của user, phân trang keyset như getPersonalOrderHistory
+     */
+    public OrderHistoryResponse getSharedCartOrderHistory(Long userId, String cursor, int size) {
+        HistoryCursor after = HistoryCursor.decode(cursor);
+        int pageSize = clampHistoryPageSize(size);
+        List<Object[]> rows = orderRepository.findSharedCartHistoryPage(
+                userId, after.createdAt(), after.id(), pageSize + 1);
+        if (needsArchivedRows(rows, pageSize)) {
+            rows = mergeNewestFirst(rows, orderRepository.findArchivedSharedCartHistoryPage(
+                    userId, after.createdAt(), after.id(), pageSize + 1), pageSize + 1);
+        }
+        return toHistoryPage(rows, pageSize, "SHARED_CART");
+    }
 
-        List<Order> orders = orderRepository.findByUserAndOrderTypeIsNotOrderByCreatedAtDesc(user, "SHARED_CART");
-        logger.info("Tổng số order cá nhân tìm thấy: {}", orders.size());
+    // Trang bảng chính đã đủ và dòng cuối còn mới hơn mốc lưu trữ -> mọi đơn lưu trữ đều nằm ở các trang sau
+    private boolean needsArchivedRows(List<Object[]> liveRows, int pageSize) {
+        if (liveRows.size() <= pageSize) {
+            return true;
+        }
+        return orderArchiveService.mayContainArchived(toLocalDateTime(liveRows.get(liveRows.size() - 1)[4]));
+    }
 
-        List<OrderSummaryResponse> orderSummaries = orders.stream()
-                .map(order -> {
-                    logger.info("Xử lý Order ID = {}, orderType = {}", order.getId(), order.getOrderType());
+    // Trộn hai danh sách đã sắp theo (created_at DESC, id DESC), giữ tối đa limit dòng
+    private static List<Object[]> mergeNewestFirst(List<Object[]> live, List<Object[]> archived, int limit) {
+        if (archived.isEmpty()) {
+            return live;
+        }
+        Comparator<Object[]> newestFirst = Comparator
+                .comparing((Object[] row) -> toLocalDateTime(row[4]), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(row -> ((Number) row[0]).longValue(), Comparator.reverseOrder());
+
+        List<Object[]> merged = new ArrayList<>(Math.min(limit, live.size() + archived.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < live.size() || j < archived.size())) {
+            if (j >= archived.size() || (i < live.size() && newestFirst.compare(live.get(i), archived.get(j)) <= 0)) {
+                merged.add(live.get(i++));
+            } else {
+                merged.add(archived.get(j++));
+            }
+        }
+        return merged;
+    }
 
-                    List<OrderItem> orderItems = orderItemRepository.findByOrderWithProductAndImages(order);
-                    logger.info(" - Số lượng OrderItem: {}", orderItems.size());
+    private int clampHistoryPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+    }
 
-                    String firstProductThumbnail = null;
-                    if (!orderItems.isEmpty() && orderItems.get(0).getProduct() != null) {
-                        Product product = orderItems.get(0).getProduct();
-                        firstProductThumbnail = product.getThumbnail();
-                        logger.info(" - Thumbnail của OrderItem đầu tiên: {}", firstProductThumbnail);
-                    } else {
-                        logger.info(" - KHÔNG tìm thấy product hoặc thumbnail");
-                    }
+    // rows: [id, total_amount, status, order_type, created_at, thumbnail, payment_method], lấy dư 1 dòng để biết còn trang sau
+    private OrderHistoryResponse toHistoryPage(List<Object[]> rows, int pageSize, String defaultOrderType) {
+        List<OrderSummaryResponse> orderSummaries = new ArrayList<>();
+        for (Object[] row : rows.subList(0, Math.min(rows.size(), pageSize))) {
+            orderSummaries.add(OrderSummaryResponse.builder()
+                    .id(((Number) row[0]).longValue())
+                    .totalAmount((BigDecimal) row[1])
+                    .status(row[2] != null ? OrderStatus.valueOf((String) row[2]) : null)
+                    .orderType(row[3] != null ? (String) row[3] : defaultOrderType)
+                    .createdAt(toLocalDateTime(row[4]))
+                    .firstProductThumbnail((String) row[5])
+                    .paymentMethod((String) row[6])
+                    .build());
+        }
 
-                    return OrderSummaryResponse.builder()
-                            .id(order.getId())
-                            .totalAmount(order.getTotalAmount())
-                            .status(order.getStatus())
-                            .orderType(order.getOrderType() != null ? order.getOrderType() : "SINGLE")
-                            .firstProductThumbnail(firstProductThumbnail)
-                            .createdAt(order.getCreatedAt())
-                            .build();
-                })
-                .collect(Collectors.toList());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            OrderSummaryResponse last = orderSummaries.get(orderSummaries.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
 
-        logger.info("=== [OrderHistory] Hoàn tất xử lý lịch sử cá nhân cho userId = {} ===", userId);
         return OrderHistoryResponse.builder()
                 .orders(orderSummaries)
+                .nextCursor(nextCursor)
                 .build();
     }
 
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
 
-    public OrderHistoryResponse getSharedCartOrderHistory(Long userId) {
-        logger.info("=== [OrderHistory] Bắt đầu lấy lịch sử SharedCart cho userId = {} ===", userId);
-
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        logger.info("User tìm thấy: {}", user.getEmail());
-
-        List<Order> orders = orderRepository.findByUserAndOrderTypeIsOrderByCreatedAtDesc(user, "SHARED_CART");
-        logger.info("Tổng số order SharedCart tìm thấy: {}", orders.size());
-
-        List<OrderSummaryResponse> orderSummaries = orders.stream()
-                .map(order -> {
-                    logger.info("Xử lý SharedCart Order ID = {}, orderType = {}", order.getId(), order.getOrderType());
-
-                    List<OrderItem> orderItems = orderItemRepository.findByOrderWithProductAndImages(order);
-                    logger.info(" - Số lượng OrderItem: {}", orderItems.size());
-
-                    String firstProductThumbnail = null;
-                    if (!orderItems.isEmpty() && orderItems.get(0).getProduct() != null) {
-                        Product product = orderItems.get(0).getProduct();
-                        firstProductThumbnail = product.getThumbnail();
-                        logger.info(" - Thumbnail orderItem đầu tiên: {}", firstProductThumbnail);
-                    } else {
-                        logger.info(" - KHÔNG có product hoặc thumbnail");
-                    }
+    /**
+     * Con trỏ keyset (createdAt, id) của đơn cuối trang, gửi cho client dưới dạng chuỗi base64url
+     */
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+        private static final HistoryCursor FIRST_PAGE = new HistoryCursor(null, null);
 
-                    return OrderSummaryResponse.builder()
-                            .id(order.getId())
-                            .totalAmount(order.getTotalAmount())
-                            .status(order.getStatus())
-                            .orderType(order.getOrderType() != null ? order.getOrderType() : "SHARED_CART")
-                            .firstProductThumbnail(firstProductThumbnail)
-                            .createdAt(order.getCreatedAt())
-                            .build();
-                })
-                .collect(Collectors.toList());
+        static HistoryCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return FIRST_PAGE;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('_');
+                return new HistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Cursor không hợp lệ");
+            }
+        }
 
-        logger.info("=== [OrderHistory] Hoàn tất xử lý SharedCart cho userId = {} ===", userId);
-        return OrderHistoryResponse.builder()
-                .orders(orderSummaries)
-                .build();
+        String encode() {
+            String raw = createdAt + "_" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
     }
 
     /**
-     * Lấy tất cả đơn hàng cho admin (với pagination và filter)
+     * Danh sách đơn cho admin: 1 câu lấy trang đơn + 2 câu IN cho thumbnail và phương thức thanh toán.
+     *
+     * @param withCount false -> bỏ qua câu COUNT (dùng cho trang sâu), kết quả là Slice chỉ biết hasNext
      */
-    public Page<OrderSummaryResponse> getAllOrders(Pageable pageable, OrderStatus status, String orderType) {
+    public Slice<OrderSummaryResponse> getAllOrders(Pageable pageable, OrderStatus status, String orderType, boolean withCount) {
         Specification<Order> spec = Specification.where(null);
 
         if (status != null) {
@@ -376,32 +336,46 @@ public class OrderService {
             spec = spec.and((root, query, cb) -> cb.equal(root.get("orderType"), orderType));
         }
 
-        Page<Order> orders = orderRepository.findAll(spec, pageable);
+        // Chỉ lấy các cột cần hiển thị; lấy dư 1 dòng để biết còn trang sau khi bỏ qua count
+        int pageSize = pageable.getPageSize();
+        List<OrderRepositoryCustom.OrderRow> rows = orderRepository.findOrderRows(spec, pageable,
+                withCount ? pageSize : pageSize + 1);
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext) {
+            rows = rows.subList(0, pageSize);
+        }
 
-        return orders.map(order -> {
-            // Lấy OrderItem đầu tiên để lấy thumbnail
-            List<OrderItem> orderItems = orderItemRepository.findByOrderWithProductAndImages(order);
-            String firstProductThumbnail = null;
-            if (!orderItems.isEmpty() && orderItems.get(0).getProduct() != null) {
-                Product product = orderItems.get(0).getProduct();
-                firstProductThumbnail = product.getThumbnail();
+        // Thumbnail và phương thức thanh toán của cả trang: mỗi loại một câu IN
+        List<Long> orderIds = rows.stream().map(OrderRepositoryCustom.OrderRow::id).toList();
+        Map<Long, String> thumbnails = new HashMap<>();
+        Map<Long, String> paymentMethods = new HashMap<>();
+        if (!orderIds.isEmpty()) {
+            for (Object[] row : orderItemRepository.findFirstThumbnailsByOrderIds(orderIds)) {
+                thumbnails.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+            for (Object[] row : paymentRepository.findPaymentMethodsByOrderIds(orderIds)) {
+                paymentMethods.putIfAbsent((Long) row[0], (String) row[1]);
             }
+        }
 
-            // Lấy phương thức thanh toán (nếu có)
-            String paymentMethod = paymentRepository.findByOrderId(order.getId())
-                    .map(Payment::getPaymentMethod)
-                    .orElse(null);
-
-            return OrderSummaryResponse.builder()
-                    .id(order.getId())
-                    .totalAmount(order.getTotalAmount())
-                    .status(order.getStatus())
-                    .orderType(order.getOrderType() != null ? order.getOrderType() : "SINGLE")
-                    .firstProductThumbnail(firstProductThumbnail)
-                    .paymentMethod(paymentMethod)
-                    .createdAt(order.getCreatedAt())
-                    .build();
-        });
+        List<OrderSummaryResponse> content = rows.stream()
+                .map(order -> OrderSummaryResponse.builder()
+                        .id(order.id())
+                        .totalAmount(order.totalAmount())
+                        .status(order.status())
+                        .orderType(order.orderType() != null ? order.orderType() : "SINGLE")
+                        .firstProductThumbnail(thumbnails.get(order.id()))
+                        .paymentMethod(paymentMethods.get(order.id()))
+                        .createdAt(order.createdAt())
+                        .build())
+                .toList();
+
+        if (!withCount) {
+            return new SliceImpl<>(content, pageable, hasNext);
+        }
+        // Không chạy count khi trang đầu chưa đầy hoặc là trang cuối
+        Specification<Order> countSpec = spec;
+        return PageableExecutionUtils.getPage(content, pageable, () -> orderRepository.count(countSpec));
     }
 
     /**
@@ -426,6 +400,8 @@ public class OrderService {
 
         order.setStatus(newStatus);
         orderRepository.save(order);
+        orderDetailCache.evict(orderId);
+        orderEventService.publish(OrderEventType.ORDER_SHIPPED, order, oldStatus, null);
 
         logger.info("Admin updated order #{} status from {} to {}", orderId, oldStatus, newStatus);
 
@@ -437,6 +413,125 @@ public class OrderService {
                 .build();
     }
 
+    /**
+     * Admin chuyển trạng thái hàng loạt: PAID -> SHIPPED, hoặc PAID -> COMPLETED với đơn COD.
+     * Các đơn được khóa một lần, mỗi trạng thái nguồn một câu UPDATE có điều kiện,
+     * sự kiện outbox và xóa cache gom lại một lượt sau khi cập nhật
+     */
+    @Transactional
+    public BulkOrderStatusUpdateResponse bulkUpdateOrderStatusByAdmin(BulkOrderStatusUpdateRequest request) {
+        OrderStatus target = request.getStatus();
+        if (target != OrderStatus.SHIPPED && target != OrderStatus.COMPLETED) {
+            throw new RuntimeException("Admin chỉ có thể chuyển hàng loạt sang SHIPPED hoặc COMPLETED (đơn COD)");
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        if (request.getOrderIds() != null) {
+            request.getOrderIds().stream().filter(Objects::nonNull).forEach(orderIds::add);
+        }
+        if (orderIds.isEmpty()) {
+            throw new RuntimeException("Danh sách đơn hàng trống");
+        }
+        if (orderIds.size() > MAX_BULK_STATUS_UPDATE) {
+            throw new RuntimeException("Tối đa " + MAX_BULK_STATUS_UPDATE + " đơn hàng mỗi lần cập nhật");
+        }
+
+        // Khóa theo id tăng dần để không deadlock với các cập nhật khác
+        Map<Long, Object[]> rows = new HashMap<>();
+        for (Object[] row : orderRepository.findStatusRowsForUpdate(new TreeSet<>(orderIds))) {
+            rows.put(((Number) row[0]).longValue(), row);
+        }
+
+        Map<Long, String> rejections = new HashMap<>();
+        Map<OrderStatus, List<Long>> idsBySource = new EnumMap<>(OrderStatus.class);
+        for (Long orderId : orderIds) {
+            Object[] row = rows.get(orderId);
+            if (row == null) {
+                continue;
+            }
+            OrderStatus current = OrderStatus.valueOf((String) row[1]);
+            String rejection = bulkTransitionRejection(target, current, (String) row[7]);
+            if (rejection != null) {
+                rejections.put(orderId, rejection);
+            } else {
+                idsBySource.computeIfAbsent(current, s -> new ArrayList<>()).add(orderId);
+            }
+        }
+
+        Set<Long> transitioned = new HashSet<>();
+        for (Map.Entry<OrderStatus, List<Long>> entry : idsBySource.entrySet()) {
+            int updated = orderRepository.updateStatusByIdsAndStatus(entry.getValue(), entry.getKey(), target);
+            // Các đơn đã bị khóa nên số dòng cập nhật phải khớp
+            if (updated != entry.getValue().size()) {
+                throw new RuntimeException("Trạng thái đơn hàng đã thay đổi trong lúc cập nhật, vui lòng thử lại");
+            }
+            transitioned.addAll(entry.getValue());
+        }
+
+        // Tác dụng phụ: một lượt cho cả lô
+        orderDetailCache.evictAll(transitioned);
+        // Cùng sự kiện như cập nhật từng đơn: SHIPPED -> ORDER_SHIPPED, COMPLETED -> ORDER_COMPLETED
+        OrderEventType eventType = target == OrderStatus.SHIPPED ? OrderEventType.ORDER_SHIPPED : OrderEventType.ORDER_COMPLETED;
+        for (Map.Entry<OrderStatus, List<Long>> entry : idsBySource.entrySet()) {
+            List<Order> changed = entry.getValue().stream()
+                    .map(orderId -> toEventOrder(rows.get(orderId), target))
+                    .toList();
+            orderEventService.publishAll(eventType, changed, entry.getKey());
+        }
+
+        List<BulkOrderStatusItemResponse> results = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            Object[] row = rows.get(orderId);
+            BulkOrderStatusItemResponse.BulkOrderStatusItemResponseBuilder result = BulkOrderStatusItemResponse.builder()
+                    .orderId(orderId)
+                    .previousStatus(row != null ? (String) row[1] : null);
+            if (row == null) {
+                result.outcome(BulkTransitionOutcome.NOT_FOUND).message("Order not found with id: " + orderId);
+            } else if (transitioned.contains(orderId)) {
+                result.outcome(BulkTransitionOutcome.TRANSITIONED).message("Đã chuyển sang " + target);
+            } else {
+                result.outcome(BulkTransitionOutcome.WRONG_STATE).message(rejections.get(orderId));
+            }
+            results.add(result.build());
+        }
+
+        logger.info("Admin bulk updated {}/{} orders to {}", transitioned.size(), orderIds.size(), target);
+
+        return BulkOrderStatusUpdateResponse.builder()
+                .targetStatus(target.name())
+                .requested(orderIds.size())
+                .transitioned(transitioned.size())
+                .results(results)
+                .build();
+    }
+
+    // Cùng luật với updateOrderStatusByAdmin / confirmDeliveryForCOD; null = được phép chuyển
+    private static String bulkTransitionRejection(OrderStatus target, OrderStatus current, String paymentMethod) {
+        if (target == OrderStatus.SHIPPED) {
+            return current == OrderStatus.PAID ? null
+                    : "Chỉ có thể cập nhật đơn hàng có trạng thái PAID. Trạng thái hiện tại: " + current;
+        }
+        if (current != OrderStatus.PAID) {
+            return "Chỉ có thể xác nhận đơn COD đang ở trạng thái PAID. Trạng thái hiện tại: " + current;
+        }
+        if (paymentMethod == null || !paymentMethod.equalsIgnoreCase(PaymentMethod.COD.name())) {
+            return "Chỉ áp dụng xác nhận giao hàng cho đơn COD";
+        }
+        return null;
+    }
+
+    // Order tạm (không được lưu) chỉ mang các cột cần cho payload sự kiện outbox
+    private static Order toEventOrder(Object[] row, OrderStatus status) {
+        return Order.builder()
+                .id(((Number) row[0]).longValue())
+                .status(status)
+                .orderType((String) row[2])
+                .user(row[3] != null ? User.builder().id(((Number) row[3]).longValue()).build() : null)
+                .sharedCart(row[4] != null ? SharedCart.builder().id(((Number) row[4]).longValue()).build() : null)
+                .totalAmount((BigDecimal) row[5])
+                .createdAt(toLocalDateTime(row[6]))
+                .build();
+    }
+
     /**
      * User cập nhật trạng thái đơn hàng từ SHIPPED sang COMPLETED
      */
@@ -460,6 +555,8 @@ public class OrderService {
         OrderStatus newStatus = OrderStatus.COMPLETED;
         order.setStatus(newStatus);
         orderRepository.save(order);
+        orderDetailCache.evict(orderId);
+        orderEventService.publish(OrderEventType.ORDER_COMPLETED, order, oldStatus, null);
 
         logger.info("User {} updated order #{} status from {} to {}", userId, orderId, oldStatus, newStatus);
 
@@ -493,6 +590,8 @@ public class OrderService {
         OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.COMPLETED);
         orderRepository.save(order);
+        orderDetailCache.evict(orderId);
+        orderEventService.publish(OrderEventType.ORDER_COMPLETED, order, oldStatus, null);
 
         return OrderStatusUpdateResponse.builder()
                 .orderId(orderId)
@@ -503,13 +602,26 @@ public class OrderService {
     }
 
     /**
-     * Lấy chi tiết đơn hàng cho user hiện tại
+     * Lấy chi tiết đơn hàng cho user hiện tại (qua cache, kiểm tra quyền cả khi lấy từ cache)
      */
     public OrderDetailResponse getOrderDetail(Long orderId, Long userId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        OrderDetailResponse detail = orderDetailCache.get(orderId, () -> loadOrderDetail(orderId));
 
-        if (order.getUser() == null || !order.getUser().getId().equals(userId)) {
+        if (detail.getUserId() == null || !detail.getUserId().equals(userId)) {
+            throw new RuntimeException("Bạn không có quyền xem đơn hàng này");
+        }
+        return detail;
+    }
+
+    private OrderDetailResponse loadOrderDetail(Long orderId) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return orderRepository.findArchivedOrder(orderId)
+                    .map(OrderService::toArchivedOrderDetail)
+                    .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
+        }
+
+        if (order.getUser() == null) {
             throw new RuntimeException("Bạn không có quyền xem đơn hàng này");
         }
 
@@ -565,12 +677,61 @@ public class OrderService {
                 .build();
     }
 
+    private static OrderDetailResponse toArchivedOrderDetail(OrderRepositoryCustom.ArchivedOrder order) {
+        if (order.userId() == null) {
+            throw new RuntimeException("Bạn không có quyền xem đơn hàng này");
+        }
+
+        List<OrderItemDetailResponse> itemResponses = order.items().stream()
+                .map(item -> OrderItemDetailResponse.builder()
+                        .id(item.id())
+                        .productId(item.productId())
+                        .productName(item.productName())
+                        .productSlug(item.productSlug())
+                        .productThumbnail(item.productThumbnail())
+                        .quantity(item.qty())
+                        .unitPrice(item.unitPrice())
+                        .subtotal(item.unitPrice() != null && item.qty() != null
+                                ? item.unitPrice().multiply(BigDecimal.valueOf(item.qty()))
+                                : BigDecimal.ZERO)
+                        .build())
+                .collect(Collectors.toList());
+
+        OrderRepositoryCustom.ArchivedPayment payment = order.payment();
+        PaymentDetailResponse paymentResponse = payment == null ? null : PaymentDetailResponse.builder()
+                .id(payment.id())
+                .amount(payment.amount())
+                .paymentMethod(payment.paymentMethod())
+                .status(payment.status())
+                .paidAt(payment.paidAt())
+                .build();
+
+        return OrderDetailResponse.builder()
+                .id(order.id())
+                .userId(order.userId())
+                .userEmail(order.userEmail())
+                .totalAmount(order.totalAmount())
+                .status(order.status())
+                .orderType(order.orderType())
+                .couponId(order.couponId())
+                .couponCode(order.couponCode())
+                .discountAmount(order.couponDiscountValue())
+                .sharedCartId(order.sharedCartId())
+                .sharedCartTitle(order.sharedCartTitle())
+                .createdAt(order.createdAt())
+                .payment(paymentResponse)
+                .items(itemResponses)
+                .shippingAddress(null)
+                .build();
+    }
+
     /**
      * User hủy đơn hàng khi còn ở trạng thái PENDING/PAID
      */
     @Transactional
     public OrderStatusUpdateResponse cancelOrder(Long orderId, Long userId) {
-        Order order = orderRepository.findById(orderId)
+        // Khóa đơn: job hết hạn giữ hàng và callback thanh toán không đổi trạng thái chen giữa
+        Order order = orderRepository.findByIdForUpdate(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
 
         if (order.getUser() == null || !order.getUser().getId().equals(userId)) {
@@ -584,16 +745,21 @@ public class OrderService {
         OrderStatus oldStatus = order.getStatus();
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
-
-        // Hoàn lại tồn kho
-        List<OrderItem> orderItems = orderItemRepository.findByOrder(order);
-        for (OrderItem item : orderItems) {
-            Product product = item.getProduct();
-            if (product != null && item.getQty() != null) {
-                product.setStockQuantity(product.getStockQuantity() + item.getQty());
-                productRepository.save(product);
+        orderDetailCache.evict(orderId);
+
+        // Hoàn lại tồn kho: đơn có giữ hàng chỉ hoàn phần giữ hàng vừa giải phóng,
+        // đơn không giữ hàng (COD) hoàn theo dòng hàng
+        Map<Long, Integer> restockLines = stockReservationService.releaseForCancel(orderId).orElseGet(() -> {
+            Map<Long, Integer> lines = new TreeMap<>();
+            for (OrderItem item : orderItemRepository.findByOrder(order)) {
+                Product product = item.getProduct();
+                if (product != null && item.getQty() != null) {
+                    lines.merge(product.getId(), item.getQty(), Integer::sum);
+                }
             }
-        }
+            return lines;
+        });
+        inventoryService.restoreStock(restockLines);
 
         // Cập nhật trạng thái payment
         paymentRepository.findByOrderId(orderId).ifPresent(payment -> {
@@ -604,6 +770,7 @@ public class OrderService {
             }
             paymentRepository.save(payment);
         });
+        orderEventService.publish(OrderEventType.ORDER_CANCELLED, order, oldStatus, null);
 
         return OrderStatusUpdateResponse.builder()
                 .orderId(orderId)
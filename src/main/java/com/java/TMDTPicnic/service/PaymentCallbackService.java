@@ -0,0 +1,144 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.PaymentCallback;
+import com.java.TMDTPicnic.repository.PaymentCallbackRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Xử lý callback VNPay một cách idempotent:
+ * - Cache bộ nhớ có giới hạn cho các khóa (vnp_TxnRef, vnp_TransactionNo) gần đây, callback lặp lại trả về ngay
+ * - Bảng payment_callbacks có unique constraint là nguồn sự thật khi cache không có khóa
+ * - Phần việc nặng sau thanh toán chạy trên thread pool nền để gateway nhận phản hồi nhanh
+ * - Mỗi lượt xử lý claim callback trong lease-seconds, lượt quét lại không gửi trùng callback đang chạy;
+ *   quá max-attempts lượt thì callback bị đánh dấu FAILED để xử lý thủ công
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentCallbackService {
+
+    private static final String SUCCESS_CODE = "00";
+
+    private final PaymentCallbackRepository paymentCallbackRepository;
+    private final OrderService orderService;
+    private final ThreadPoolTaskExecutor paymentCallbackExecutor;
+
+    @Value("${app.payment-callback.recent-cache-size:10000}")
+    private int recentCacheSize;
+
+    @Value("${app.payment-callback.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${app.payment-callback.max-attempts:5}")
+    private int maxAttempts;
+
+    private Map<String, Boolean> recentKeys;
+
+    @PostConstruct
+    void initRecentKeys() {
+        recentKeys = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > recentCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Ghi nhận callback đã xác minh chữ ký.
+     *
+     * @return true nếu đây là lần đầu nhận callback này, false nếu là callback lặp lại
+     */
+    public boolean handleCallback(Long orderId, String txnRef, String transactionNo, String responseCode) {
+        String normalizedTransactionNo = transactionNo != null ? transactionNo : "";
+        String key = txnRef + ":" + normalizedTransactionNo;
+        if (recentKeys.containsKey(key)) {
+            return false;
+        }
+
+        PaymentCallback callback;
+        try {
+            callback = paymentCallbackRepository.saveAndFlush(PaymentCallback.builder()
+                    .txnRef(txnRef)
+                    .transactionNo(normalizedTransactionNo)
+                    .orderId(orderId)
+                    .responseCode(responseCode)
+                    .receivedAt(LocalDateTime.now())
+                    .attempts(0)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Đã có bản ghi với cùng khóa -> callback lặp lại
+            recentKeys.put(key, Boolean.TRUE);
+            return false;
+        }
+        recentKeys.put(key, Boolean.TRUE);
+
+        if (SUCCESS_CODE.equals(responseCode)) {
+            submit(callback);
+        } else {
+            paymentCallbackRepository.markProcessed(callback.getId(), LocalDateTime.now());
+        }
+        return true;
+    }
+
+    /**
+     * Khởi động lại: xử lý tiếp các callback thành công chưa hoàn tất
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        LocalDateTime now = LocalDateTime.now();
+        paymentCallbackRepository.findUnprocessedSuccess(now, now.minusSeconds(leaseSeconds)).forEach(this::submit);
+    }
+
+    /**
+     * Quét lại callback thành công bị kẹt (lỗi khi xử lý hoặc thread pool đầy),
+     * bỏ qua callback đang được xử lý và đánh dấu FAILED các callback đã thử quá số lần
+     */
+    @Scheduled(fixedDelayString = "${app.payment-callback.retry-interval-ms:60000}")
+    public void retryStuckCallbacks() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = paymentCallbackRepository.markFailedOverAttempts(maxAttempts, now);
+        if (failed > 0) {
+            log.error("{} VNPay success callbacks failed after {} attempts, manual handling required", failed, maxAttempts);
+        }
+        paymentCallbackRepository.findUnprocessedSuccess(now.minusMinutes(1), now.minusSeconds(leaseSeconds))
+                .forEach(this::submit);
+    }
+
+    private void submit(PaymentCallback callback) {
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentCallbackRepository.claim(callback.getId(), now, now.minusSeconds(leaseSeconds)) == 0) {
+            return;
+        }
+        try {
+            paymentCallbackExecutor.execute(() -> process(callback));
+        } catch (TaskRejectedException e) {
+            paymentCallbackRepository.releaseClaim(callback.getId());
+            log.warn("Payment callback executor is saturated, order #{} will be retried later", callback.getOrderId());
+        }
+    }
+
+    private void process(PaymentCallback callback) {
+        try {
+            orderService.updatePaymentStatusAfterSuccess(callback.getOrderId());
+            paymentCallbackRepository.markProcessed(callback.getId(), LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Failed to process VNPay callback for order #{}", callback.getOrderId(), e);
+        }
+    }
+}
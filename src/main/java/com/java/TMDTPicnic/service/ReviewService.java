@@ -181,7 +181,7 @@ public class ReviewService {
 
     /**
      * Kiểm tra user đã mua sản phẩm chưa
-     * Kiểm tra trong OrderItem của các đơn hàng đã hoàn thành
+     * Kiểm tra trong OrderItem của các đơn hàng đã hoàn thành, kể cả đơn đã lưu trữ
      */
     private boolean checkUserHasPurchasedProduct(Long userId, Long productId) {
         User user = userRepository.findById(userId)
@@ -205,8 +205,9 @@ public class ReviewService {
                 }
             }
         }
-        
-        return false;
+
+        // Đơn cũ đã chuyển sang bảng lưu trữ (chỉ còn COMPLETED/CANCELLED)
+        return orderRepository.countArchivedPurchases(userId, productId) > 0;
     }
 }
 
@@ -0,0 +1,138 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.SalesCounterRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm số lượng đã bán (Product.soldQuantity) trong bộ nhớ:
+ * - ORDER_PAID cộng, ORDER_CANCELLED của đơn đã thanh toán trừ, mỗi sản phẩm một LongAdder
+ * - Định kỳ ghi phần chênh lệch xuống bảng products bằng một lần gửi batch,
+ *   sản phẩm bán chạy không phải khóa dòng cho từng đơn
+ * - Khi khởi động tính lại sold_quantity từ order_items để bù phần chưa kịp ghi nếu bị crash
+ * - Mỗi sự kiện chỉ được cộng một lần (sales_counter_applied_events): sự kiện giao lại bị bỏ qua,
+ *   sự kiện còn chờ lúc tính lại được ghi nhận trong cùng transaction vì đã nằm trong số liệu vừa tính
+ */
+@Component
+@DependsOn("flywayMigrateAfterJpa") // rebuild đọc bảng lưu trữ (V2) và sales_counter_applied_events (V6)
+@RequiredArgsConstructor
+@Slf4j
+public class SalesCounter implements OrderEventHandler {
+
+    private static final Set<OrderStatus> SOLD_STATUSES = Set.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.COMPLETED);
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final SalesCounterRepository salesCounterRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.sales-counter.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${app.order-events.retention-days:7}")
+    private int retentionDays;
+
+    // Chạy trước khi các tác vụ @Scheduled (dispatcher outbox) bắt đầu
+    @PostConstruct
+    void rebuild() {
+        if (rebuildOnStartup) {
+            transactionTemplate.executeWithoutResult(status -> {
+                int absorbed = salesCounterRepository.markPendingEventsApplied(LocalDateTime.now());
+                int updated = productRepository.rebuildSoldQuantity();
+                log.info("Rebuilt sold_quantity of {} products from order items, {} pending events absorbed", updated, absorbed);
+            });
+        }
+    }
+
+    @Override
+    public Set<OrderEventType> supportedTypes() {
+        return Set.of(OrderEventType.ORDER_PAID, OrderEventType.ORDER_CANCELLED);
+    }
+
+    @Override
+    public void handle(OrderEvent event, Map<String, Object> payload) {
+        int sign;
+        if (event.getEventType() == OrderEventType.ORDER_PAID) {
+            sign = 1;
+        } else if (payload.get("previousStatus") != null
+                && SOLD_STATUSES.contains(OrderStatus.valueOf((String) payload.get("previousStatus")))) {
+            // Chỉ trừ khi đơn bị hủy đã từng được tính là bán
+            sign = -1;
+        } else {
+            return;
+        }
+
+        List<Object[]> rows = orderItemRepository.findProductQuantitiesByOrderId(event.getOrderId());
+        // Outbox giao ít nhất một lần: sự kiện đã cộng (hoặc đã nằm trong lần tính lại) thì bỏ qua
+        if (!salesCounterRepository.markApplied(event.getId(), LocalDateTime.now())) {
+            return;
+        }
+        for (Object[] row : rows) {
+            if (row[0] != null && row[1] != null) {
+                record((Long) row[0], sign * ((Number) row[1]).longValue());
+            }
+        }
+    }
+
+    public void record(Long productId, long delta) {
+        pending.computeIfAbsent(productId, id -> new LongAdder()).add(delta);
+    }
+
+    @Scheduled(fixedDelayString = "${app.sales-counter.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        pending.forEach((productId, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                // Trừ đúng phần đã đọc, các lần cộng đồng thời vẫn được giữ lại cho lần sau
+                adder.add(-delta);
+                deltas.put(productId, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            productRepository.addSoldQuantity(deltas);
+        } catch (RuntimeException e) {
+            deltas.forEach(this::record);
+            log.warn("Failed to flush sold quantities for {} products, will retry: {}", deltas.size(), e.getMessage());
+        }
+    }
+
+    // Sự kiện đã xử lý bị xóa khỏi outbox sau retention-days nên không thể được giao lại
+    @Scheduled(cron = "${app.sales-counter.purge-cron:0 45 3 * * *}")
+    public void purgeAppliedEvents() {
+        int purged = salesCounterRepository.purgeAppliedBefore(LocalDateTime.now().minusDays(retentionDays + 1L));
+        if (purged > 0) {
+            log.info("Purged {} applied sales counter event markers", purged);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,103 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.*;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import com.java.TMDTPicnic.repository.SharedCartItemRepository;
+import com.java.TMDTPicnic.repository.SharedCartCheckoutRepository;
+import com.java.TMDTPicnic.repository.SharedCartParticipantRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sau khi đơn SHARED_CART được thanh toán: xóa items của giỏ chung
+ * và gửi thông báo cho participants và người thanh toán.
+ * Mỗi sự kiện chỉ xử lý một lần (shared_cart_checkout_applied_events, ghi trong cùng transaction).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SharedCartCheckoutHandler implements OrderEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final SharedCartItemRepository sharedCartItemRepository;
+    private final SharedCartParticipantRepository sharedCartParticipantRepository;
+    private final NotificationService notificationService;
+    private final SharedCartCheckoutRepository sharedCartCheckoutRepository;
+
+    @Value("${app.order-events.retention-days:7}")
+    private int retentionDays;
+
+    @Override
+    public Set<OrderEventType> supportedTypes() {
+        return Set.of(OrderEventType.ORDER_PAID);
+    }
+
+    @Override
+    @Transactional
+    public void handle(OrderEvent event, Map<String, Object> payload) {
+        if (!"SHARED_CART".equalsIgnoreCase((String) payload.get("orderType")) || payload.get("sharedCartId") == null) {
+            return;
+        }
+
+        // Outbox giao ít nhất một lần: sự kiện đã xử lý thì không xóa items / gửi thông báo lần nữa
+        if (!sharedCartCheckoutRepository.markApplied(event.getId(), LocalDateTime.now())) {
+            return;
+        }
+
+        Order order = orderRepository.findById(event.getOrderId())
+                .orElseThrow(() -> new RuntimeException("Order not found with id: " + event.getOrderId()));
+        Payment payment = paymentRepository.findByOrderId(order.getId())
+                .orElseThrow(() -> new RuntimeException("Payment not found for order id: " + order.getId()));
+        SharedCart sharedCart = order.getSharedCart();
+        User paidByUser = order.getUser();
+
+        // Xóa tất cả items trong shared cart
+        sharedCartItemRepository.deleteAllBySharedCartId(sharedCart.getId());
+
+        // Tạo notification cho tất cả participants (trừ người thanh toán)
+        List<SharedCartParticipant> participants = sharedCartParticipantRepository.findBySharedCartId(sharedCart.getId());
+        for (SharedCartParticipant participant : participants) {
+            if (!participant.getUser().getId().equals(paidByUser.getId())) {
+                notificationService.createSharedCartCheckoutNotification(
+                        participant.getUser(),
+                        sharedCart,
+                        paidByUser,
+                        payment.getAmount(),
+                        payment.getPaymentMethod()
+                );
+            }
+        }
+        // Tạo notification cho người thanh toán
+        notificationService.createSharedCartCheckoutNotification(
+                paidByUser,
+                sharedCart,
+                paidByUser,
+                payment.getAmount(),
+                payment.getPaymentMethod()
+        );
+
+        log.info("Removed items and notified participants of shared cart #{} after order #{} was paid",
+                sharedCart.getId(), order.getId());
+    }
+
+    // Sự kiện đã xử lý bị xóa khỏi outbox sau retention-days nên không thể được giao lại
+    @Scheduled(cron = "${app.shared-cart-checkout.purge-cron:0 50 3 * * *}")
+    public void purgeAppliedEvents() {
+        int purged = sharedCartCheckoutRepository.purgeAppliedBefore(LocalDateTime.now().minusDays(retentionDays + 1L));
+        if (purged > 0) {
+            log.info("Purged {} applied shared cart checkout event markers", purged);
+        }
+    }
+}
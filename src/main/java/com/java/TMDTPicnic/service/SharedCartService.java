@@ -3,8 +3,6 @@ package com.java.TMDTPicnic.service;
 import com.java.TMDTPicnic.dto.request.*;
 import com.java.TMDTPicnic.dto.response.*;
 import com.java.TMDTPicnic.entity.*;
-import com.java.TMDTPicnic.enums.OrderStatus;
-import com.java.TMDTPicnic.enums.PaymentMethod;
 import com.java.TMDTPicnic.enums.PaymentStatus;
 import com.java.TMDTPicnic.enums.SharedCartStatus;
 import com.java.TMDTPicnic.repository.*;
@@ -30,10 +28,9 @@ public class SharedCartService {
     private final ProductRepository productRepository;
     private final NotificationService notificationService;
     private final OrderRepository orderRepository;
-    private final OrderItemRepository orderItemRepository;
     private final PaymentRepository paymentRepository;
-    private final VNPayService vnPayService;
-    private final CouponService couponService;
+    private final CheckoutPipeline checkoutPipeline;
+    private final FlashSaleGate flashSaleGate;
     private String couponCode;
 
     // 1. Tạo giỏ chia sẻ
@@ -371,7 +368,7 @@ public class SharedCartService {
     }
 
     // 13. Checkout shared cart (thanh toán giỏ hàng chung)
-    @Transactional
+    // Không mở transaction ở đây: token flash sale phải lấy trước transaction checkout (trong pipeline)
     public String checkoutSharedCart(Long userId, SharedCartCheckoutRequest request, String ipAddress)
             throws UnsupportedEncodingException {
         // Kiểm tra shared cart tồn tại
@@ -394,116 +391,27 @@ public class SharedCartService {
             throw new RuntimeException("Shared cart is empty. Cannot checkout.");
         }
 
-        // Tính tổng tiền và kiểm tra stock
-        BigDecimal total = BigDecimal.ZERO;
+        // Giá theo priceAtAdd của từng item; tồn kho, coupon, tạo đơn và thanh toán dùng chung pipeline
+        List<CheckoutPipeline.Line> lines = new ArrayList<>();
         for (SharedCartItem item : cartItems) {
-            Product product = item.getProduct();
-            if (product.getStockQuantity() < item.getQuantity()) {
-                throw new RuntimeException("Product " + product.getName() + " out of stock. Available: "
-                        + product.getStockQuantity() + ", Required: " + item.getQuantity());
-            }
-            total = total.add(item.getPriceAtAdd().multiply(BigDecimal.valueOf(item.getQuantity())));
-        }
-        BigDecimal finalTotal = total;
-        if (request.getCouponCode() != null && !request.getCouponCode().isBlank()) {
-            var applyRequest = new ApplyCouponRequest(request.getCouponCode(), total);
-            var applyResult = couponService.applyCoupon(applyRequest);
-            if (!applyResult.isValid()) {
-                throw new RuntimeException(applyResult.getMessage());
-            }
-            finalTotal = applyResult.getFinalTotal(); // finalTotal = total * giảm giá (nếu có)
-        }
-
-
-        // Lấy user (owner)
-        User owner = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        // Tạo Order
-        Order order = Order.builder()
-                .user(owner)
-                .totalAmount(finalTotal)
-                .status(OrderStatus.PENDING)
-                .orderType("SHARED_CART")
-                .sharedCart(cart)
-                .createdAt(LocalDateTime.now())
-                .build();
-        orderRepository.save(order);
-
-        // Tạo OrderItems và giảm stock
-        for (SharedCartItem cartItem : cartItems) {
-            Product product = cartItem.getProduct();
-
-            // Giảm stock
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
-
-            // Tạo OrderItem
-            OrderItem orderItem = OrderItem.builder()
-                    .order(order)
-                    .product(product)
-                    .qty(cartItem.getQuantity())
-                    .unitPrice(cartItem.getPriceAtAdd())
-                    .build();
-            orderItemRepository.save(orderItem);
+            lines.add(new CheckoutPipeline.Line(item.getProduct().getId(), item.getQuantity(), item.getPriceAtAdd()));
         }
 
-        // Tạo Payment
-        Payment payment = Payment.builder()
-                .order(order)
-                .amount(finalTotal)
-                .paymentMethod(request.getPaymentMethod().name())
-                .status(PaymentStatus.PENDING)
-                .paidAt(null)
-                .build();
-        paymentRepository.save(payment);
-
-        // Xử lý thanh toán
-        if (request.getPaymentMethod() == PaymentMethod.COD) {
-            // COD: Complete ngay và đóng shared cart
-            order.setStatus(OrderStatus.COMPLETED);
-            orderRepository.save(order);
-
-            payment.setStatus(PaymentStatus.SUCCESS);
-            payment.setPaidAt(LocalDateTime.now());
-            paymentRepository.save(payment);
-
-            // Đóng shared cart và xóa items
-            cart.setStatus(SharedCartStatus.COMPLETED);
-            sharedCartRepository.save(cart);
-            sharedCartItemRepository.deleteAll(cartItems);
-
-            // Tạo notification cho tất cả participants (trừ người thanh toán)
-            List<SharedCartParticipant> participants = sharedCartParticipantRepository.findBySharedCartId(cart.getId());
-            for (SharedCartParticipant participant : participants) {
-                if (!participant.getUser().getId().equals(owner.getId())) {
-                    notificationService.createSharedCartCheckoutNotification(
-                            participant.getUser(),
-                            cart,
-                            owner,
-                            finalTotal,
-                            request.getPaymentMethod().name()
-                    );
-                }
-            }
-            // Tạo notification cho owner (người thanh toán)
-            notificationService.createSharedCartCheckoutNotification(
-                    owner,
-                    cart,
-                    owner,
-                    finalTotal,
-                    request.getPaymentMethod().name()
-            );
-
-            return ""; // Không cần URL thanh toán
-        } else if (request.getPaymentMethod() == PaymentMethod.VNPAY) {
-            // VNPay: Tạo payment URL, sẽ xử lý callback sau
-            return vnPayService.createPaymentUrl(order.getId(), finalTotal, ipAddress);
-        } else if (request.getPaymentMethod() == PaymentMethod.MOMO) {
-            // MOMO: (hiện để trống, có thể implement sau)
-            throw new RuntimeException("MOMO payment method is not yet implemented");
-        } else {
-            throw new RuntimeException("Unsupported payment method");
+        // Số lượng chỉ biết sau khi đọc giỏ: lấy token ngay sau lần đọc này, trước transaction checkout
+        FlashSaleGate.Admission admission = flashSaleGate.admit(CheckoutPipeline.quantities(lines));
+        try {
+            return checkoutPipeline.checkout(CheckoutPipeline.Command.builder()
+                    .userId(userId)
+                    .orderType("SHARED_CART")
+                    .lines(lines)
+                    .couponCode(request.getCouponCode())
+                    .paymentMethod(request.getPaymentMethod())
+                    .ipAddress(ipAddress)
+                    .sharedCart(cart)
+                    .admission(admission)
+                    .build());
+        } finally {
+            admission.releaseIfUnbound();
         }
     }
 
@@ -0,0 +1,101 @@
+package com.java.TMDTPicnic.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hàng đợi trễ (DelayQueue) trong bộ nhớ cho các giữ hàng: một worker chỉ thức dậy khi có
+ * giữ hàng đến hạn, gom các đơn đến hạn cùng lúc thành lô và giải phóng trong một transaction.
+ * Không quét toàn bảng định kỳ; khi khởi động chỉ nạp lại các giữ hàng còn ACTIVE.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationScheduler {
+
+    private static final long RETRY_DELAY_SECONDS = 30;
+
+    private final StockReservationService stockReservationService;
+    private final DelayQueue<ExpiringHold> queue = new DelayQueue<>();
+    private volatile Thread worker;
+
+    @Value("${app.reservation.release-batch-size:100}")
+    private int batchSize;
+
+    @TransactionalEventListener
+    public void onHoldCreated(StockReservationService.HoldCreatedEvent event) {
+        schedule(event.orderId(), event.expiresAt());
+    }
+
+    public void schedule(Long orderId, LocalDateTime expiresAt) {
+        queue.put(new ExpiringHold(orderId, expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        stockReservationService.findActiveHoldExpiries().forEach(this::schedule);
+        log.info("Loaded {} pending stock holds into release queue", queue.size());
+
+        worker = new Thread(this::runLoop, "stock-hold-releaser");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void runLoop() {
+        while (worker != null) {
+            List<ExpiringHold> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+
+            List<Long> orderIds = batch.stream().map(ExpiringHold::orderId).distinct().toList();
+            try {
+                stockReservationService.releaseExpired(orderIds);
+            } catch (RuntimeException e) {
+                log.error("Failed to release stock holds for orders {}, retrying in {}s", orderIds, RETRY_DELAY_SECONDS, e);
+                long retryAt = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(RETRY_DELAY_SECONDS);
+                batch.forEach(hold -> queue.put(new ExpiringHold(hold.orderId(), retryAt)));
+            }
+        }
+    }
+
+    record ExpiringHold(Long orderId, long expiresAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
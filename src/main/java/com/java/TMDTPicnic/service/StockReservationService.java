@@ -0,0 +1,158 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.entity.StockReservation;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.enums.PaymentStatus;
+import com.java.TMDTPicnic.enums.ReservationStatus;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import com.java.TMDTPicnic.repository.StockReservationRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Quản lý giữ hàng cho các đơn thanh toán online đang chờ (PENDING).
+ * - hold: ghi nhận giữ hàng kèm hạn (tồn kho đã được trừ khi tạo đơn)
+ * - commit: thanh toán thành công -> giữ hàng thành trừ kho vĩnh viễn
+ * - releaseExpired: hết hạn -> hoàn kho, hủy đơn (phát ORDER_CANCELLED) và đánh dấu payment FAILED
+ * Mọi luồng đổi trạng thái khóa dòng đơn trước rồi mới khóa dòng giữ hàng để không deadlock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final OrderRepository orderRepository;
+    private final PaymentRepository paymentRepository;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderEventService orderEventService;
+    private final OrderDetailCache orderDetailCache;
+
+    // Dài hơn vnp_ExpireDate (15 phút) để callback trễ vẫn kịp chuyển giữ hàng thành trừ kho
+    @Value("${app.reservation.hold-minutes:20}")
+    private long holdMinutes;
+
+    /**
+     * Sự kiện phát ra khi tạo giữ hàng, scheduler chỉ nhận sau khi transaction tạo đơn commit
+     */
+    public record HoldCreatedEvent(Long orderId, LocalDateTime expiresAt) {}
+
+    @Transactional
+    public void hold(Long orderId, Map<Long, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(holdMinutes);
+
+        List<StockReservation> reservations = new ArrayList<>();
+        quantities.forEach((productId, qty) -> reservations.add(StockReservation.builder()
+                .orderId(orderId)
+                .productId(productId)
+                .qty(qty)
+                .status(ReservationStatus.ACTIVE)
+                .expiresAt(expiresAt)
+                .createdAt(now)
+                .build()));
+        stockReservationRepository.saveAll(reservations);
+
+        eventPublisher.publishEvent(new HoldCreatedEvent(orderId, expiresAt));
+    }
+
+    /**
+     * Thanh toán thành công: chuyển giữ hàng thành trừ kho vĩnh viễn.
+     * Chỉ gọi cho đơn còn PENDING (đã khóa); giữ hàng đã giải phóng thì đơn đã bị hủy và không được thanh toán lại.
+     */
+    @Transactional
+    public void commit(Long orderId) {
+        stockReservationRepository
+                .findByOrderIdsAndStatusForUpdate(List.of(orderId), ReservationStatus.ACTIVE)
+                .forEach(r -> r.setStatus(ReservationStatus.COMMITTED));
+    }
+
+    /**
+     * Đơn bị hủy thủ công (dòng đơn đã được khóa): giải phóng giữ hàng ACTIVE/COMMITTED.
+     *
+     * @return số lượng cần hoàn kho của chính các giữ hàng vừa giải phóng;
+     *         Optional.empty() nếu đơn không có giữ hàng (COD), khi đó hoàn kho theo dòng hàng của đơn
+     */
+    @Transactional
+    public Optional<Map<Long, Integer>> releaseForCancel(Long orderId) {
+        List<StockReservation> reservations = stockReservationRepository.findByOrderIdForUpdate(orderId);
+        if (reservations.isEmpty()) {
+            return Optional.empty();
+        }
+        // Giữ hàng đã RELEASED (job hết hạn đã hoàn kho) thì không hoàn lần nữa
+        List<StockReservation> released = reservations.stream()
+                .filter(r -> r.getStatus() == ReservationStatus.ACTIVE || r.getStatus() == ReservationStatus.COMMITTED)
+                .toList();
+        released.forEach(r -> r.setStatus(ReservationStatus.RELEASED));
+        return Optional.of(toQuantities(released));
+    }
+
+    /**
+     * Giải phóng giữ hàng đã hết hạn của một lô đơn hàng trong một transaction
+     *
+     * @return số đơn đã được giải phóng
+     */
+    @Transactional
+    public int releaseExpired(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        // Khóa đơn trước (cùng thứ tự với hủy đơn và callback thanh toán)
+        orderRepository.findStatusRowsForUpdate(new TreeSet<>(orderIds));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<StockReservation> expired = stockReservationRepository
+                .findByOrderIdsAndStatusForUpdate(orderIds, ReservationStatus.ACTIVE).stream()
+                .filter(r -> !r.getExpiresAt().isAfter(now))
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+
+        inventoryService.restoreStock(toQuantities(expired));
+        expired.forEach(r -> r.setStatus(ReservationStatus.RELEASED));
+
+        Set<Long> releasedOrderIds = new TreeSet<>();
+        expired.forEach(r -> releasedOrderIds.add(r.getOrderId()));
+        List<Order> cancelledOrders = orderRepository.findAllById(releasedOrderIds).stream()
+                .filter(o -> o.getStatus() == OrderStatus.PENDING)
+                .toList();
+        orderRepository.updateStatusByIdsAndStatus(releasedOrderIds, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        orderDetailCache.evictAll(releasedOrderIds);
+        cancelledOrders.forEach(o -> o.setStatus(OrderStatus.CANCELLED));
+        orderEventService.publishAll(OrderEventType.ORDER_CANCELLED, cancelledOrders, OrderStatus.PENDING);
+        paymentRepository.updateStatusByOrderIdsAndStatus(releasedOrderIds, PaymentStatus.PENDING, PaymentStatus.FAILED);
+
+        log.info("Released expired stock holds for orders {}", releasedOrderIds);
+        return releasedOrderIds.size();
+    }
+
+    /**
+     * Hạn giữ hàng của các đơn còn ACTIVE, dùng để nạp lại hàng đợi sau khi khởi động lại
+     */
+    public Map<Long, LocalDateTime> findActiveHoldExpiries() {
+        Map<Long, LocalDateTime> expiries = new HashMap<>();
+        for (Object[] row : stockReservationRepository.findActiveOrderExpiries()) {
+            expiries.put((Long) row[0], (LocalDateTime) row[1]);
+        }
+        return expiries;
+    }
+
+    private Map<Long, Integer> toQuantities(List<StockReservation> reservations) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        reservations.forEach(r -> quantities.merge(r.getProductId(), r.getQty(), Integer::sum));
+        return quantities;
+    }
+}
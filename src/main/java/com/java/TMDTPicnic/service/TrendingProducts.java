@@ -0,0 +1,324 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.TopCategoryResponse;
+import com.java.TMDTPicnic.dto.response.TopProductResponse;
+import com.java.TMDTPicnic.entity.OrderEvent;
+import com.java.TMDTPicnic.enums.OrderEventType;
+import com.java.TMDTPicnic.enums.TrendingWindow;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sản phẩm và danh mục bán chạy trong 24 giờ / 7 ngày / 30 ngày gần nhất, giữ trong bộ nhớ:
+ * - Vòng 720 bucket theo giờ; mỗi bucket chỉ chứa các sản phẩm có bán trong giờ đó và các đơn đã cộng
+ *   (sự kiện giao lại thì bỏ qua, đơn bị hủy thì trừ đúng giờ đã cộng)
+ * - Tổng theo sản phẩm của từng khung được cộng/trừ dần khi có đơn và khi bucket trượt khỏi khung
+ * - Định kỳ chọn top-K của mỗi khung bằng heap giới hạn K phần tử rồi công bố danh sách bất biến, đọc O(K)
+ * - Khi khởi động nạp lại 30 ngày từ order_items (trước khi dispatcher outbox chạy, giống SalesCounter)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingProducts implements OrderEventHandler {
+
+    private static final int HOURS = TrendingWindow.LAST_30D.getHours();
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+
+    @Value("${app.trending.top-k:10}")
+    private int topK;
+
+    private static final class Bucket {
+        private long hour;
+        private final Map<Long, Long> quantities = new HashMap<>();
+        private final Set<Long> orderIds = new HashSet<>();
+    }
+
+    private record ProductInfo(String name, BigDecimal price, String categoryName) {}
+
+    private record Ranking(List<TopProductResponse> products, List<TopCategoryResponse> categories) {}
+
+    // Mọi thay đổi trên vòng bucket, tổng theo khung và orderHours đều giữ lock này
+    private final Object lock = new Object();
+    private final Bucket[] ring = new Bucket[HOURS];
+    private final Map<TrendingWindow, Map<Long, Long>> totals = new EnumMap<>(TrendingWindow.class);
+    private final Map<Long, Long> orderHours = new HashMap<>();
+    private long currentHour;
+    private boolean dirty;
+
+    private final Map<Long, ProductInfo> productInfo = new ConcurrentHashMap<>();
+    private volatile Map<TrendingWindow, Ranking> rankings = Map.of();
+
+    @PostConstruct
+    void rebuild() {
+        long nowHour = hourOf(LocalDateTime.now());
+        LocalDateTime since = startOfHour(nowHour - HOURS + 1);
+
+        // Gom các dòng theo đơn: một đơn là một lần cộng vào bucket giờ thanh toán
+        Map<Long, Long> soldHours = new LinkedHashMap<>();
+        Map<Long, Map<Long, Long>> soldItems = new HashMap<>();
+        for (Object[] row : orderItemRepository.findSoldItemsSinceRaw(since)) {
+            if (row[2] == null || row[3] == null) {
+                continue;
+            }
+            Long orderId = ((Number) row[0]).longValue();
+            soldHours.putIfAbsent(orderId, hourOf(toLocalDateTime(row[1])));
+            soldItems.computeIfAbsent(orderId, id -> new HashMap<>())
+                    .merge(((Number) row[2]).longValue(), ((Number) row[3]).longValue(), Long::sum);
+        }
+
+        synchronized (lock) {
+            reset(nowHour);
+            soldHours.forEach((orderId, hour) -> addOrder(orderId, hour, soldItems.get(orderId)));
+        }
+        productInfo.clear();
+        publish();
+        log.info("Rebuilt trending products from {} orders since {}", soldHours.size(), since);
+    }
+
+    @Override
+    public Set<OrderEventType> supportedTypes() {
+        return Set.of(OrderEventType.ORDER_PAID, OrderEventType.ORDER_CANCELLED);
+    }
+
+    @Override
+    public void handle(OrderEvent event, Map<String, Object> payload) {
+        Map<Long, Long> items = new HashMap<>();
+        for (Object[] row : orderItemRepository.findProductQuantitiesByOrderId(event.getOrderId())) {
+            if (row[0] != null && row[1] != null) {
+                items.merge((Long) row[0], ((Number) row[1]).longValue(), Long::sum);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (lock) {
+            advance(hourOf(now));
+            if (event.getEventType() == OrderEventType.ORDER_PAID) {
+                addOrder(event.getOrderId(), hourOf(event.getCreatedAt() != null ? event.getCreatedAt() : now), items);
+            } else {
+                // Chỉ đơn đã được cộng mới bị trừ, không cần xét trạng thái trước khi hủy
+                removeOrder(event.getOrderId(), items);
+            }
+        }
+    }
+
+    /**
+     * Trượt vòng bucket theo đồng hồ và công bố lại top-K nếu số liệu đã đổi
+     */
+    @Scheduled(fixedDelayString = "${app.trending.publish-interval-ms:10000}")
+    public void tick() {
+        boolean changed;
+        synchronized (lock) {
+            long before = currentHour;
+            advance(hourOf(LocalDateTime.now()));
+            if (currentHour != before) {
+                // Mỗi giờ nạp lại tên, giá, danh mục của sản phẩm
+                productInfo.clear();
+            }
+            changed = dirty;
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    public List<TopProductResponse> topProducts(TrendingWindow window, int limit) {
+        Ranking ranking = rankings.get(window);
+        return ranking == null ? List.of() : ranking.products().subList(0, Math.min(Math.max(limit, 0), ranking.products().size()));
+    }
+
+    public List<TopCategoryResponse> topCategories(TrendingWindow window, int limit) {
+        Ranking ranking = rankings.get(window);
+        return ranking == null ? List.of() : ranking.categories().subList(0, Math.min(Math.max(limit, 0), ranking.categories().size()));
+    }
+
+    // ==================== RING BUFFER (giữ lock) ====================
+    private void reset(long nowHour) {
+        currentHour = nowHour;
+        for (long hour = nowHour - HOURS + 1; hour <= nowHour; hour++) {
+            Bucket bucket = new Bucket();
+            bucket.hour = hour;
+            ring[slot(hour)] = bucket;
+        }
+        for (TrendingWindow window : TrendingWindow.values()) {
+            totals.put(window, new HashMap<>());
+        }
+        orderHours.clear();
+        dirty = true;
+    }
+
+    private void advance(long nowHour) {
+        if (nowHour - currentHour >= HOURS) {
+            reset(nowHour);
+            return;
+        }
+        while (currentHour < nowHour) {
+            currentHour++;
+            // Bucket của giờ currentHour - hours vừa ra khỏi khung; với khung 30 ngày đó chính là slot sắp dùng lại
+            for (TrendingWindow window : TrendingWindow.values()) {
+                Bucket leaving = ring[slot(currentHour - window.getHours())];
+                if (leaving.hour == currentHour - window.getHours() && !leaving.quantities.isEmpty()) {
+                    subtract(totals.get(window), leaving.quantities);
+                    dirty = true;
+                }
+            }
+            Bucket reused = ring[slot(currentHour)];
+            reused.orderIds.forEach(orderHours::remove);
+            reused.orderIds.clear();
+            reused.quantities.clear();
+            reused.hour = currentHour;
+        }
+    }
+
+    private void addOrder(Long orderId, long hour, Map<Long, Long> items) {
+        if (items == null || items.isEmpty() || orderHours.containsKey(orderId) || hour <= currentHour - HOURS) {
+            return;
+        }
+        long bucketHour = Math.min(hour, currentHour);
+        Bucket bucket = ring[slot(bucketHour)];
+        bucket.orderIds.add(orderId);
+        items.forEach((productId, qty) -> bucket.quantities.merge(productId, qty, Long::sum));
+        orderHours.put(orderId, bucketHour);
+
+        for (TrendingWindow window : TrendingWindow.values()) {
+            if (bucketHour > currentHour - window.getHours()) {
+                Map<Long, Long> windowTotals = totals.get(window);
+                items.forEach((productId, qty) -> windowTotals.merge(productId, qty, Long::sum));
+            }
+        }
+        dirty = true;
+    }
+
+    private void removeOrder(Long orderId, Map<Long, Long> items) {
+        Long hour = orderHours.remove(orderId);
+        if (hour == null) {
+            return;
+        }
+        Bucket bucket = ring[slot(hour)];
+        bucket.orderIds.remove(orderId);
+        subtract(bucket.quantities, items);
+        for (TrendingWindow window : TrendingWindow.values()) {
+            if (hour > currentHour - window.getHours()) {
+                subtract(totals.get(window), items);
+            }
+        }
+        dirty = true;
+    }
+
+    private static void subtract(Map<Long, Long> counts, Map<Long, Long> delta) {
+        delta.forEach((productId, qty) -> counts.computeIfPresent(productId, (id, count) -> count > qty ? count - qty : null));
+    }
+
+    private static int slot(long hour) {
+        return (int) Math.floorMod(hour, (long) HOURS);
+    }
+
+    // ==================== TOP-K ====================
+    private void publish() {
+        Map<TrendingWindow, Map<Long, Long>> snapshot = new EnumMap<>(TrendingWindow.class);
+        synchronized (lock) {
+            totals.forEach((window, counts) -> snapshot.put(window, new HashMap<>(counts)));
+            dirty = false;
+        }
+        loadMissingInfo(snapshot.get(TrendingWindow.LAST_30D).keySet());
+
+        Map<TrendingWindow, Ranking> next = new EnumMap<>(TrendingWindow.class);
+        snapshot.forEach((window, counts) -> {
+            List<TopProductResponse> products = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : topK(counts, topK)) {
+                ProductInfo info = productInfo.get(entry.getKey());
+                BigDecimal price = info != null && info.price() != null ? info.price() : BigDecimal.ZERO;
+                products.add(new TopProductResponse(
+                        entry.getKey(),
+                        info != null ? info.name() : null,
+                        (int) Math.min(entry.getValue(), Integer.MAX_VALUE),
+                        price.multiply(BigDecimal.valueOf(entry.getValue()))));
+            }
+
+            Map<String, Long> byCategory = new HashMap<>();
+            counts.forEach((productId, qty) -> {
+                ProductInfo info = productInfo.get(productId);
+                if (info != null && info.categoryName() != null) {
+                    byCategory.merge(info.categoryName(), qty, Long::sum);
+                }
+            });
+            List<TopCategoryResponse> categories = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : topK(byCategory, topK)) {
+                categories.add(new TopCategoryResponse(entry.getKey(), entry.getValue()));
+            }
+
+            next.put(window, new Ranking(List.copyOf(products), List.copyOf(categories)));
+        });
+        rankings = next;
+    }
+
+    // Min-heap giữ tối đa k phần tử lớn nhất, trả về theo thứ tự giảm dần
+    private static <K> List<Map.Entry<K, Long>> topK(Map<K, Long> counts, int k) {
+        Comparator<Map.Entry<K, Long>> byCount = Map.Entry.comparingByValue();
+        PriorityQueue<Map.Entry<K, Long>> heap = new PriorityQueue<>(Math.max(k, 1) + 1, byCount);
+        for (Map.Entry<K, Long> entry : counts.entrySet()) {
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(Map.entry(entry.getKey(), entry.getValue()));
+            } else if (k > 0 && entry.getValue() > heap.peek().getValue()) {
+                heap.poll();
+                heap.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        List<Map.Entry<K, Long>> result = new ArrayList<>(heap);
+        result.sort(byCount.reversed());
+        return result;
+    }
+
+    private void loadMissingInfo(Set<Long> productIds) {
+        List<Long> missing = productIds.stream().filter(id -> !productInfo.containsKey(id)).toList();
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (Object[] row : productRepository.findRankingInfoRaw(missing)) {
+            productInfo.put((Long) row[0], new ProductInfo((String) row[1], (BigDecimal) row[2], (String) row[3]));
+        }
+    }
+
+    // ==================== TIME ====================
+    private static long hourOf(LocalDateTime time) {
+        return Math.floorDiv(time.atZone(ZoneId.systemDefault()).toEpochSecond(), 3600L);
+    }
+
+    private static LocalDateTime startOfHour(long hour) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(hour * 3600L), ZoneId.systemDefault());
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return value instanceof LocalDateTime time ? time : LocalDateTime.now();
+    }
+}
@@ -0,0 +1,33 @@
+-- Index composite cho các truy vấn đang dùng thực tế.
+-- Bảng do Hibernate (ddl-auto: update) tạo, migration này chạy sau khi JPA khởi động.
+
+-- Lịch sử đơn của user (keyset theo created_at, id)
+CREATE INDEX idx_orders_user_type_created ON orders (user_id, order_type, created_at);
+-- Danh sách đơn admin lọc theo trạng thái, thống kê dashboard theo khoảng ngày
+CREATE INDEX idx_orders_status_created ON orders (status, created_at);
+CREATE INDEX idx_orders_created ON orders (created_at);
+
+-- Thông báo của user: tất cả / theo trạng thái đã đọc, mới nhất trước
+CREATE INDEX idx_notifications_user_read_created ON notifications (user_id, read_flag, created_at);
+CREATE INDEX idx_notifications_user_created ON notifications (user_id, created_at);
+
+-- Tra payment theo đơn (thay index tự sinh của khóa ngoại)
+CREATE INDEX idx_payments_order ON payments (order_id);
+
+-- Thống kê user mới theo ngày
+CREATE INDEX idx_users_created ON users (created_at);
+
+-- Giỏ hàng / giỏ chung: tìm dòng theo (giỏ, sản phẩm)
+CREATE INDEX idx_cart_items_cart_product ON cart_items (cart_id, product_id);
+CREATE INDEX idx_shared_cart_items_cart_product ON shared_cart_items (shared_cart_id, product_id);
+
+-- Đếm chiến dịch mua chung đang chạy / sắp kết thúc
+CREATE INDEX idx_group_buy_campaigns_status_end ON group_buy_campaigns (status, end_at);
+
+-- Sản phẩm theo danh mục: mới nhất / bán chạy
+CREATE INDEX idx_products_category_created ON products (category_id, created_at);
+CREATE INDEX idx_products_category_sold ON products (category_id, sold_quantity);
+
+-- Đánh giá của sản phẩm (ẩn / hiện), mới nhất trước; danh sách đánh giá admin
+CREATE INDEX idx_reviews_product_hidden_created ON reviews (product_id, is_hidden, created_at);
+CREATE INDEX idx_reviews_created ON reviews (created_at);
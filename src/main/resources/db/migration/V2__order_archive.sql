@@ -0,0 +1,50 @@
+-- Bảng lưu trữ cho đơn đã đóng (COMPLETED / CANCELLED) quá hạn giữ ở bảng chính.
+-- Cùng cột với bảng gốc, không có khóa ngoại; status dùng VARCHAR để không phụ thuộc danh sách enum.
+
+CREATE TABLE orders_archive (
+    id             BIGINT        NOT NULL,
+    user_id        BIGINT        NULL,
+    total_amount   DECIMAL(38,2) NULL,
+    status         VARCHAR(32)   NULL,
+    order_type     VARCHAR(255)  NULL,
+    coupon_id      BIGINT        NULL,
+    shared_cart_id BIGINT        NULL,
+    vnp_txn_ref    VARCHAR(255)  NULL,
+    created_at     DATETIME(6)   NULL,
+    archived_at    DATETIME(6)   NOT NULL,
+    PRIMARY KEY (id),
+    INDEX idx_orders_archive_user_type_created (user_id, order_type, created_at),
+    INDEX idx_orders_archive_created (created_at)
+) ENGINE = InnoDB;
+
+CREATE TABLE order_items_archive (
+    id         BIGINT        NOT NULL,
+    order_id   BIGINT        NULL,
+    product_id BIGINT        NULL,
+    qty        INT           NULL,
+    unit_price DECIMAL(38,2) NULL,
+    PRIMARY KEY (id),
+    INDEX idx_order_items_archive_order (order_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE payments_archive (
+    id             BIGINT        NOT NULL,
+    order_id       BIGINT        NULL,
+    amount         DECIMAL(38,2) NULL,
+    payment_method VARCHAR(255)  NULL,
+    status         VARCHAR(32)   NULL,
+    paid_at        DATETIME(6)   NULL,
+    PRIMARY KEY (id),
+    INDEX idx_payments_archive_order (order_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE shipments_archive (
+    id              BIGINT       NOT NULL,
+    order_id        BIGINT       NULL,
+    carrier         VARCHAR(255) NULL,
+    tracking_number VARCHAR(255) NULL,
+    shipped_at      DATETIME(6)  NULL,
+    delivered_at    DATETIME(6)  NULL,
+    PRIMARY KEY (id),
+    INDEX idx_shipments_archive_order (order_id)
+) ENGINE = InnoDB;
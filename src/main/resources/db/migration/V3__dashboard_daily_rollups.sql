@@ -0,0 +1,47 @@
+-- Bảng tổng hợp theo ngày cho dashboard, được cập nhật dần từ outbox sự kiện đơn hàng và lúc đăng ký user.
+-- Mỗi dòng daily_order_rollups là (ngày tạo đơn, loại đơn, trạng thái hiện tại): số đơn và tổng tiền.
+
+-- Loại sự kiện mới (ORDER_COMPLETED) không phải sửa lại cột kiểu ENUM do Hibernate sinh ra
+ALTER TABLE order_events MODIFY event_type VARCHAR(32) NULL;
+
+CREATE TABLE daily_order_rollups (
+    day          DATE          NOT NULL,
+    order_type   VARCHAR(32)   NOT NULL,
+    status       VARCHAR(32)   NOT NULL,
+    order_count  BIGINT        NOT NULL DEFAULT 0,
+    revenue      DECIMAL(38,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, order_type, status)
+) ENGINE = InnoDB;
+
+CREATE TABLE daily_user_rollups (
+    day        DATE   NOT NULL,
+    new_users  BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (day)
+) ENGINE = InnoDB;
+
+-- Sự kiện outbox đã cộng vào rollup (outbox giao ít nhất một lần)
+CREATE TABLE dashboard_rollup_applied_events (
+    event_id    BIGINT      NOT NULL,
+    applied_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (event_id),
+    INDEX idx_rollup_applied_events_applied (applied_at)
+) ENGINE = InnoDB;
+
+-- Dựng rollup từ dữ liệu hiện có
+INSERT INTO daily_order_rollups (day, order_type, status, order_count, revenue)
+SELECT DATE(created_at), COALESCE(order_type, 'SINGLE'), status, COUNT(*), COALESCE(SUM(total_amount), 0)
+FROM (SELECT created_at, order_type, status, total_amount FROM orders
+      UNION ALL
+      SELECT created_at, order_type, status, total_amount FROM orders_archive) o
+WHERE created_at IS NOT NULL AND status IS NOT NULL
+GROUP BY DATE(created_at), COALESCE(order_type, 'SINGLE'), status;
+
+INSERT INTO daily_user_rollups (day, new_users)
+SELECT DATE(created_at), COUNT(*)
+FROM users
+WHERE created_at IS NOT NULL
+GROUP BY DATE(created_at);
+
+-- Sự kiện chưa xử lý đã nằm sẵn trong số liệu vừa dựng, không cộng lại lần nữa
+INSERT INTO dashboard_rollup_applied_events (event_id, applied_at)
+SELECT id, NOW(6) FROM order_events WHERE status = 'PENDING';
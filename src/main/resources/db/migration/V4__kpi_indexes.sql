@@ -0,0 +1,2 @@
+-- Tỉ lệ đơn dùng mã giảm giá trong khoảng ngày (KPI dashboard)
+CREATE INDEX idx_coupon_redemptions_redeemed ON coupon_redemptions (redeemed_at);
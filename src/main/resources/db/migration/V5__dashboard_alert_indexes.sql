@@ -0,0 +1,4 @@
+-- Cảnh báo dashboard: sản phẩm đang bán sắp hết hàng, giỏ chung đang mở sắp hết hạn
+-- (đơn PENDING quá hạn dùng idx_orders_status_created, mua chung dùng idx_group_buy_campaigns_status_end)
+CREATE INDEX idx_products_active_stock ON products (is_active, stock_quantity);
+CREATE INDEX idx_shared_carts_status_expires ON shared_carts (status, expires_at);
@@ -0,0 +1,7 @@
+-- Sự kiện outbox SalesCounter đã cộng vào số lượng đã bán (outbox giao ít nhất một lần)
+CREATE TABLE sales_counter_applied_events (
+    event_id    BIGINT      NOT NULL,
+    applied_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (event_id),
+    INDEX idx_sales_counter_applied_events_applied (applied_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,2 @@
+-- Trạng thái payment mới (REFUND_REQUIRED) không phải sửa lại cột kiểu ENUM do Hibernate sinh ra
+ALTER TABLE payments MODIFY status VARCHAR(32) NULL;
@@ -0,0 +1,7 @@
+-- Sự kiện ORDER_PAID đã được SharedCartCheckoutHandler xử lý (outbox giao ít nhất một lần)
+CREATE TABLE shared_cart_checkout_applied_events (
+    event_id    BIGINT      NOT NULL,
+    applied_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (event_id),
+    INDEX idx_shared_cart_checkout_applied_events_applied (applied_at)
+) ENGINE = InnoDB;
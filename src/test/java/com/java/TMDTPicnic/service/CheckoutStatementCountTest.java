@@ -0,0 +1,200 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.entity.Product;
+import com.java.TMDTPicnic.entity.SharedCart;
+import com.java.TMDTPicnic.entity.User;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.enums.PaymentMethod;
+import com.java.TMDTPicnic.enums.Role;
+import com.java.TMDTPicnic.enums.SharedCartStatus;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.SharedCartRepository;
+import com.java.TMDTPicnic.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Số câu lệnh Hibernate của một lần checkout COD hai sản phẩm qua CheckoutPipeline.
+ * Trừ kho chạy bằng JdbcTemplate (một batch) nên không nằm trong thống kê Hibernate.
+ * Thống kê Hibernate là toàn cục: giãn chu kỳ quét outbox và callback để các câu lệnh nền không lọt vào số đếm.
+ */
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.order-events.poll-interval-ms=3600000",
+		"app.payment-callback.retry-interval-ms=3600000"
+})
+class CheckoutStatementCountTest {
+
+	@Autowired
+	private CheckoutPipeline checkoutPipeline;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private SharedCartRepository sharedCartRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private PaymentRepository paymentRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private User user;
+	private final List<Product> products = new ArrayList<>();
+	private SharedCart sharedCart;
+
+	@BeforeEach
+	void createUserAndProducts() {
+		long suffix = System.nanoTime();
+		user = userRepository.save(User.builder()
+				.username("checkout-stmt-" + suffix)
+				.email("checkout-stmt-" + suffix + "@test.local")
+				.passwordHash("x")
+				.isActive(true)
+				.role(Role.USER)
+				.createdAt(LocalDateTime.now())
+				.build());
+		for (int i = 0; i < 2; i++) {
+			products.add(productRepository.save(Product.builder()
+					.name("checkout-stmt-" + i)
+					.slug("checkout-stmt-" + i + "-" + suffix)
+					.price(BigDecimal.TEN)
+					.stockQuantity(100)
+					.soldQuantity(0)
+					.isActive(true)
+					.createdAt(LocalDateTime.now())
+					.images(new ArrayList<>())
+					.build()));
+		}
+	}
+
+	@AfterEach
+	void deleteCreatedRows() {
+		List<Long> orderIds = jdbcTemplate.queryForList("SELECT id FROM orders WHERE user_id = ?", Long.class, user.getId());
+		for (Long orderId : orderIds) {
+			jdbcTemplate.update("DELETE FROM order_events WHERE order_id = ?", orderId);
+			Order order = orderRepository.findById(orderId).orElseThrow();
+			paymentRepository.findByOrderId(orderId).ifPresent(paymentRepository::delete);
+			orderItemRepository.deleteAll(orderItemRepository.findByOrder(order));
+			orderRepository.delete(order);
+		}
+		if (sharedCart != null) {
+			sharedCartRepository.deleteById(sharedCart.getId());
+		}
+		productRepository.deleteAll(products);
+		userRepository.delete(user);
+	}
+
+	@Test
+	void singleCheckoutUsesTenStatements() throws Exception {
+		Statistics statistics = statistics();
+
+		checkoutPipeline.checkout(command("SINGLE", null).build());
+
+		// user + sản phẩm FOR UPDATE + order + 2 order_items + payment + ORDER_CREATED + ORDER_PAID
+		// + khi commit: update order, update payment
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(10);
+		assertThat(orderStatuses()).containsExactly(OrderStatus.PAID.name());
+	}
+
+	@Test
+	void groupCheckoutUsesTenStatements() throws Exception {
+		Statistics statistics = statistics();
+
+		// Dòng hàng lấy từ CartItem ở OrderService, xóa CartItem chạy nền qua outbox (ORDER_CREATED)
+		checkoutPipeline.checkout(command("GROUP", null).build());
+
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(10);
+		assertThat(orderStatuses()).containsExactly(OrderStatus.PAID.name());
+	}
+
+	@Test
+	void sharedCartCheckoutUsesTenStatements() {
+		sharedCart = sharedCartRepository.save(SharedCart.builder()
+				.title("checkout-stmt")
+				.owner(user)
+				.status(SharedCartStatus.OPEN)
+				.expiresAt(LocalDateTime.now().plusDays(1))
+				.createdAt(LocalDateTime.now())
+				.build());
+
+		// Như SharedCartService.checkoutSharedCart: giỏ (kèm owner) đã được nạp trong cùng transaction
+		long statements = transactionTemplate.execute(status -> {
+			SharedCart cart = sharedCartRepository.findById(sharedCart.getId()).orElseThrow();
+			Statistics statistics = statistics();
+			try {
+				checkoutPipeline.checkout(command("SHARED_CART", cart).build());
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			status.flush();
+			return statistics.getPrepareStatementCount();
+		});
+
+		// user đã có trong persistence context (owner của giỏ): sản phẩm FOR UPDATE + order + 2 order_items
+		// + payment + ORDER_CREATED + ORDER_PAID + flush: update order, update payment, update shared cart
+		assertThat(statements).isEqualTo(10);
+		assertThat(orderStatuses()).containsExactly(OrderStatus.COMPLETED.name());
+		assertThat(sharedCartRepository.findById(sharedCart.getId()).orElseThrow().getStatus())
+				.isEqualTo(SharedCartStatus.COMPLETED);
+	}
+
+	private CheckoutPipeline.Command.CommandBuilder command(String orderType, SharedCart cart) {
+		List<CheckoutPipeline.Line> lines = new ArrayList<>();
+		for (Product product : products) {
+			lines.add(new CheckoutPipeline.Line(product.getId(), 2, cart != null ? BigDecimal.ONE : null));
+		}
+		return CheckoutPipeline.Command.builder()
+				.userId(user.getId())
+				.orderType(orderType)
+				.lines(lines)
+				.paymentMethod(PaymentMethod.COD)
+				.ipAddress("127.0.0.1")
+				.sharedCart(cart);
+	}
+
+	private List<String> orderStatuses() {
+		return jdbcTemplate.queryForList("SELECT status FROM orders WHERE user_id = ?", String.class, user.getId());
+	}
+
+	private Statistics statistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+}
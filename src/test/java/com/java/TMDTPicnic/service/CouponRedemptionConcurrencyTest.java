@@ -0,0 +1,83 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Coupon;
+import com.java.TMDTPicnic.repository.CouponRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class CouponRedemptionConcurrencyTest {
+
+	private static final int THREADS = 200;
+	private static final int USAGE_LIMIT = 50;
+
+	@Autowired
+	private CouponRepository couponRepository;
+
+	@Autowired
+	private CouponService couponService;
+
+	@Test
+	void concurrentRedemptionsNeverExceedUsageLimit() throws Exception {
+		Coupon coupon = couponRepository.save(Coupon.builder()
+				.code("STRESS" + System.nanoTime())
+				.description("stress test")
+				.validFrom(LocalDateTime.now().minusDays(1))
+				.validTo(LocalDateTime.now().plusDays(1))
+				.discountValue(BigDecimal.TEN)
+				.isPercent(true)
+				.usageLimit(USAGE_LIMIT)
+				.usedCount(0)
+				.build());
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger redeemed = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					try {
+						CouponService.Redemption redemption = couponService.redeem(coupon.getCode(), BigDecimal.valueOf(1000));
+						assertThat(redemption.finalTotal()).isEqualByComparingTo("900");
+						redeemed.incrementAndGet();
+					} catch (RuntimeException e) {
+						rejected.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+
+			int usedCount = couponRepository.findById(coupon.getId()).orElseThrow().getUsedCount();
+
+			assertThat(redeemed.get()).isEqualTo(USAGE_LIMIT);
+			assertThat(rejected.get()).isEqualTo(THREADS - USAGE_LIMIT);
+			assertThat(usedCount).isEqualTo(USAGE_LIMIT);
+		} finally {
+			pool.shutdownNow();
+			couponRepository.deleteById(coupon.getId());
+		}
+	}
+}
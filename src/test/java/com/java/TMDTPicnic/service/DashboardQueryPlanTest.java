@@ -0,0 +1,151 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.repository.DashboardRollupRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.OrderRepositoryImpl;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import com.java.TMDTPicnic.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EXPLAIN các truy vấn theo khoảng thời gian đang được dùng (reconcile rollup, cảnh báo dashboard, KPI user,
+ * xuất đơn, lịch sử đơn): kiểm tra index MySQL thực sự chọn (cột key/type), không chỉ possible_keys.
+ * Khoảng thời gian được chọn rất hẹp (không có dòng nào) để optimizer không chuyển sang quét toàn bảng khi bảng nhỏ.
+ */
+@SpringBootTest
+class DashboardQueryPlanTest {
+
+	private static final Pattern NAMED_PARAM = Pattern.compile(":(\\w+)");
+
+	private static final LocalDateTime FROM = LocalDateTime.of(2999, 1, 1, 0, 0);
+	private static final LocalDateTime TO = FROM.plusMinutes(1);
+	private static final LocalDateTime LONG_AGO = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void rollupReconcileUsesCreatedAtIndexes() throws Exception {
+		List<Map<String, Object>> orders = jdbcTemplate.queryForList(
+				"EXPLAIN " + constant(DashboardRollupRepository.class, "COMPUTE_ORDER_ROLLUPS_SQL"), FROM, TO, FROM, TO);
+		assertIndexRange(orders, "orders", "idx_orders_created");
+		assertIndexRange(orders, "orders_archive", "idx_orders_archive_created");
+
+		List<Map<String, Object>> users = jdbcTemplate.queryForList(
+				"EXPLAIN " + constant(DashboardRollupRepository.class, "COMPUTE_USER_ROLLUPS_SQL"), FROM, TO);
+		assertIndexRange(users, "users", "idx_users_created");
+
+		// Join outbox - đơn: bảng đơn không bị quét toàn bảng dù MySQL bắt đầu từ phía nào
+		List<Map<String, Object>> pendingEvents = jdbcTemplate.queryForList(
+				"EXPLAIN " + constant(DashboardRollupRepository.class, "PENDING_EVENT_IDS_SQL"), FROM, TO);
+		assertThat(row(pendingEvents, "o").get("key")).isIn("idx_orders_created", "PRIMARY");
+		assertThat(row(pendingEvents, "o").get("type")).isNotEqualTo("ALL");
+	}
+
+	@Test
+	void alertCountsUseCompositeIndexes() throws Exception {
+		// Cùng điều kiện với các truy vấn dẫn xuất countByStatusAnd... mà DashboardAlertsService gọi
+		assertIndexRange(jdbcTemplate.queryForList(
+				"EXPLAIN SELECT COUNT(*) FROM orders WHERE status = ? AND created_at < ?", "PENDING", LONG_AGO),
+				"orders", "idx_orders_status_created");
+		assertIndexRange(jdbcTemplate.queryForList(
+				"EXPLAIN SELECT COUNT(*) FROM group_buy_campaigns WHERE status = ? AND end_at BETWEEN ? AND ?", "ACTIVE", FROM, TO),
+				"group_buy_campaigns", "idx_group_buy_campaigns_status_end");
+		assertIndexRange(jdbcTemplate.queryForList(
+				"EXPLAIN SELECT COUNT(*) FROM shared_carts WHERE status = ? AND expires_at BETWEEN ? AND ?", "OPEN", FROM, TO),
+				"shared_carts", "idx_shared_carts_status_expires");
+
+		List<Map<String, Object>> lowStock = explain(ProductRepository.class, "countActiveLowStock",
+				Map.of("threshold", -1), int.class);
+		assertIndexRange(lowStock, "products", "idx_products_active_stock");
+	}
+
+	@Test
+	void activeUsersKpiUsesCreatedAtIndexes() throws Exception {
+		List<Map<String, Object>> plan = explain(UserRepository.class, "getUserKpiRaw",
+				Map.of("fromInclusive", FROM, "toExclusive", TO), LocalDateTime.class, LocalDateTime.class);
+
+		assertIndexRange(plan, "orders", "idx_orders_created");
+		assertIndexRange(plan, "orders_archive", "idx_orders_archive_created");
+	}
+
+	@Test
+	void exportScansCreatedAtIndexes() throws Exception {
+		String sql = constant(OrderRepositoryImpl.class, "EXPORT_ROWS_SQL");
+
+		assertIndexRange(jdbcTemplate.queryForList("EXPLAIN " + sql.formatted("orders", "order_items", "payments"), FROM, TO),
+				"o", "idx_orders_created");
+		assertIndexRange(jdbcTemplate.queryForList(
+				"EXPLAIN " + sql.formatted("orders_archive", "order_items_archive", "payments_archive"), FROM, TO),
+				"o", "idx_orders_archive_created");
+	}
+
+	@Test
+	void personalHistoryUsesUserTypeCreatedIndex() throws Exception {
+		Map<String, Object> params = new HashMap<>();
+		params.put("userId", Long.MAX_VALUE);
+		params.put("cursorCreatedAt", TO);
+		params.put("cursorId", Long.MAX_VALUE);
+		params.put("limit", 21);
+		List<Map<String, Object>> plan = explain(OrderRepository.class, "findPersonalHistoryPage",
+				params, Long.class, LocalDateTime.class, Long.class, int.class);
+
+		assertThat(row(plan, "o").get("key")).isEqualTo("idx_orders_user_type_created");
+	}
+
+	// Lấy đúng câu SQL trong @Query của repository, thay tham số có tên bằng '?' theo thứ tự xuất hiện
+	private List<Map<String, Object>> explain(Class<?> repository, String methodName, Map<String, Object> params,
+											  Class<?>... parameterTypes) throws Exception {
+		Method method = repository.getMethod(methodName, parameterTypes);
+		String sql = method.getAnnotation(Query.class).value();
+
+		List<Object> args = new ArrayList<>();
+		Matcher matcher = NAMED_PARAM.matcher(sql);
+		StringBuilder jdbcSql = new StringBuilder();
+		while (matcher.find()) {
+			args.add(params.get(matcher.group(1)));
+			matcher.appendReplacement(jdbcSql, "?");
+		}
+		matcher.appendTail(jdbcSql);
+
+		return jdbcTemplate.queryForList("EXPLAIN " + jdbcSql, args.toArray());
+	}
+
+	// Câu SQL private của repository JdbcTemplate, đọc qua reflection để test đúng câu đang chạy
+	private static String constant(Class<?> repository, String name) throws Exception {
+		Field field = repository.getDeclaredField(name);
+		field.setAccessible(true);
+		return (String) field.get(null);
+	}
+
+	private static void assertIndexRange(List<Map<String, Object>> plan, String table, String index) {
+		Map<String, Object> row = row(plan, table);
+		assertThat(row.get("key")).as(table).isEqualTo(index);
+		assertThat(row.get("type")).as(table).isIn("range", "ref");
+	}
+
+	private static Map<String, Object> row(List<Map<String, Object>> plan, String table) {
+		for (Map<String, Object> row : plan) {
+			if (table.equals(row.get("table"))) {
+				return row;
+			}
+		}
+		throw new AssertionError("No plan row for table " + table + ": " + plan);
+	}
+}
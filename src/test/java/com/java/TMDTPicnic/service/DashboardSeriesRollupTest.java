@@ -0,0 +1,144 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.request.DashboardRequest;
+import com.java.TMDTPicnic.dto.response.OrdersByMonthResponse;
+import com.java.TMDTPicnic.dto.response.OrdersByWeekResponse;
+import com.java.TMDTPicnic.dto.response.RevenueByMonthResponse;
+import com.java.TMDTPicnic.dto.response.RevenueByWeekResponse;
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * So sánh chuỗi tuần/tháng cộng dồn trong bộ nhớ với GROUP BY trực tiếp trên bảng đơn.
+ * Khoảng ngày bắt đầu giữa tuần và vắt qua năm 1999/2000 (2000-01-01, 2000-01-02 thuộc 1999-W52)
+ */
+@SpringBootTest
+class DashboardSeriesRollupTest {
+
+	private static final String ORDER_TYPE = "SERIES_TEST";
+	private static final LocalDate FROM = LocalDate.of(1999, 12, 22);
+	private static final LocalDate TO = LocalDate.of(2000, 2, 15);
+
+	// Có cả đơn nằm ngoài khoảng để kiểm tra tuần/tháng ở hai đầu chỉ tính ngày trong khoảng
+	private static final LocalDate SEED_FROM = FROM.minusDays(5);
+	private static final LocalDate SEED_TO = TO.plusDays(6);
+
+	private static final String SOURCE_ORDERS = """
+		(SELECT created_at, status, total_amount FROM orders
+		 UNION ALL
+		 SELECT created_at, status, total_amount FROM orders_archive) o
+		WHERE status IS NOT NULL AND created_at >= ? AND created_at < ?
+	""";
+
+	@Autowired
+	private DashboardService dashboardService;
+
+	@Autowired
+	private DashboardRollupService dashboardRollupService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Order> orders = new ArrayList<>();
+
+	@BeforeEach
+	void createOrders() {
+		OrderStatus[] statuses = OrderStatus.values();
+		int i = 0;
+		for (LocalDate day = SEED_FROM; !day.isAfter(SEED_TO); day = day.plusDays(1), i++) {
+			if (i % 3 == 2) {
+				continue; // ngày không có đơn
+			}
+			for (int j = 0; j <= i % 4; j++) {
+				orders.add(orderRepository.save(Order.builder()
+						.totalAmount(BigDecimal.valueOf(1000L * (i + 1) + j, 2))
+						.status(statuses[(i + j) % statuses.length])
+						.orderType(ORDER_TYPE)
+						.createdAt(day.atTime(j * 5, 30))
+						.build()));
+			}
+		}
+		dashboardRollupService.reconcile(SEED_FROM, SEED_TO.plusDays(1));
+	}
+
+	@AfterEach
+	void deleteOrders() {
+		orderRepository.deleteAll(orders);
+		dashboardRollupService.reconcile(SEED_FROM, SEED_TO.plusDays(1));
+	}
+
+	@Test
+	void weeklySeriesMatchesSqlGroupedByIsoWeek() {
+		Map<String, Object[]> expected = aggregate(
+				"CONCAT(LEFT(YEARWEEK(created_at, 3), 4), '-W', RIGHT(YEARWEEK(created_at, 3), 2))");
+		DashboardRequest request = new DashboardRequest(FROM, TO);
+
+		List<RevenueByWeekResponse> revenue = dashboardService.getRevenueByWeek(request);
+		List<OrdersByWeekResponse> ordersByWeek = dashboardService.getOrdersByWeek(request);
+
+		assertThat(revenue).extracting(RevenueByWeekResponse::getWeek).containsExactlyElementsOf(expected.keySet());
+		assertThat(revenue.get(0).getWeek()).isEqualTo("1999-W51");
+		assertThat(revenue).extracting(RevenueByWeekResponse::getWeek).contains("1999-W52", "2000-W01");
+		for (RevenueByWeekResponse row : revenue) {
+			assertThat(row.getRevenue()).isEqualByComparingTo((BigDecimal) expected.get(row.getWeek())[0]);
+		}
+		assertThat(ordersByWeek).extracting(OrdersByWeekResponse::getWeek).containsExactlyElementsOf(expected.keySet());
+		for (OrdersByWeekResponse row : ordersByWeek) {
+			assertThat(row.getOrders()).isEqualTo(((Number) expected.get(row.getWeek())[1]).longValue());
+		}
+	}
+
+	@Test
+	void monthlySeriesMatchesSqlGroupedByMonth() {
+		Map<String, Object[]> expected = aggregate("DATE_FORMAT(created_at, '%Y-%m')");
+		DashboardRequest request = new DashboardRequest(FROM, TO);
+
+		List<RevenueByMonthResponse> revenue = dashboardService.getRevenueByMonth(request);
+		List<OrdersByMonthResponse> ordersByMonth = dashboardService.getOrdersByMonth(request);
+
+		assertThat(ordersByMonth).extracting(OrdersByMonthResponse::getMonth)
+				.containsExactly("1999-12", "2000-01", "2000-02")
+				.containsExactlyElementsOf(expected.keySet());
+		for (OrdersByMonthResponse row : ordersByMonth) {
+			assertThat(row.getOrders()).isEqualTo(((Number) expected.get(row.getMonth())[1]).longValue());
+		}
+		assertThat(revenue).hasSize(expected.size());
+		for (RevenueByMonthResponse row : revenue) {
+			String month = new java.sql.Date(row.getMonth().getTime()).toLocalDate().toString().substring(0, 7);
+			assertThat(row.getRevenue()).isEqualByComparingTo((BigDecimal) expected.get(month)[0]);
+		}
+	}
+
+	// nhãn -> [doanh thu, số đơn] của các đơn tạo trong [FROM, TO]
+	private Map<String, Object[]> aggregate(String bucketExpression) {
+		Map<String, Object[]> result = new LinkedHashMap<>();
+		jdbcTemplate.query(
+				"SELECT " + bucketExpression + " AS bucket, SUM(total_amount), COUNT(*) FROM " + SOURCE_ORDERS
+						+ " GROUP BY bucket ORDER BY bucket",
+				rs -> {
+					result.put(rs.getString(1), new Object[]{rs.getBigDecimal(2), rs.getLong(3)});
+				},
+				Timestamp.valueOf(FROM.atStartOfDay()), Timestamp.valueOf(TO.plusDays(1).atStartOfDay()));
+		return result;
+	}
+}
@@ -0,0 +1,96 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.entity.Product;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class InventoryServiceConcurrencyTest {
+
+	private static final int THREADS = 32;
+	private static final int ATTEMPTS_PER_THREAD = 10;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private InventoryService inventoryService;
+
+	@Test
+	void concurrentCheckoutsNeverDriveStockNegative() throws Exception {
+		Product first = productRepository.save(newProduct("stress-first", 100));
+		Product second = productRepository.save(newProduct("stress-second", 60));
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger succeeded = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < THREADS; t++) {
+				futures.add(pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+						try {
+							// Mỗi "đơn hàng" có 2 dòng: 3 x first, 2 x second
+							inventoryService.decrementStock(Map.of(first.getId(), 3, second.getId(), 2));
+							succeeded.incrementAndGet();
+						} catch (RuntimeException e) {
+							rejected.incrementAndGet();
+						}
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+
+			int firstStock = productRepository.findById(first.getId()).orElseThrow().getStockQuantity();
+			int secondStock = productRepository.findById(second.getId()).orElseThrow().getStockQuantity();
+
+			assertThat(firstStock).isGreaterThanOrEqualTo(0);
+			assertThat(secondStock).isGreaterThanOrEqualTo(0);
+			// Dòng bị từ chối phải rollback cả những dòng đã trừ trước đó trong cùng đơn
+			assertThat(firstStock).isEqualTo(100 - 3 * succeeded.get());
+			assertThat(secondStock).isEqualTo(60 - 2 * succeeded.get());
+			// second là nút cổ chai: 60 / 2 = 30 đơn thành công
+			assertThat(succeeded.get()).isEqualTo(30);
+			assertThat(succeeded.get() + rejected.get()).isEqualTo(THREADS * ATTEMPTS_PER_THREAD);
+		} finally {
+			pool.shutdownNow();
+			productRepository.deleteAllById(List.of(first.getId(), second.getId()));
+		}
+	}
+
+	private Product newProduct(String name, int stock) {
+		return Product.builder()
+				.name(name)
+				.slug(name + "-" + System.nanoTime())
+				.price(BigDecimal.TEN)
+				.stockQuantity(stock)
+				.soldQuantity(0)
+				.isActive(true)
+				.createdAt(LocalDateTime.now())
+				.build();
+	}
+}
@@ -0,0 +1,104 @@
+package com.java.TMDTPicnic.service;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo thông lượng vẽ hóa đơn (trang/giây) khi nhiều thread dùng chung một InvoiceRenderer.
+ * Số hóa đơn chỉnh bằng -Dinvoice.benchmark.count=..., font bằng -Dinvoice.benchmark.font=/path/font.ttf
+ */
+@Tag("benchmark")
+@Slf4j
+class InvoiceRenderBenchmarkTest {
+
+	private static final int INVOICES = Integer.getInteger("invoice.benchmark.count", 2_000);
+	private static final int LINES_PER_INVOICE = 12;
+
+	@Test
+	void renderInvoicesInParallel() throws Exception {
+		InvoiceRenderer renderer = new InvoiceRenderer(System.getProperty("invoice.benchmark.font", ""), "");
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		// Làm nóng JIT và đếm số trang của một hóa đơn mẫu
+		byte[] sample = render(renderer, 1L);
+		int pagesPerInvoice;
+		try (PdfDocument pdf = new PdfDocument(new PdfReader(new ByteArrayInputStream(sample)))) {
+			pagesPerInvoice = pdf.getNumberOfPages();
+		}
+		for (long i = 0; i < 50; i++) {
+			render(renderer, i);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		AtomicLong bytes = new AtomicLong();
+		long started = System.nanoTime();
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (long orderId = 1; orderId <= INVOICES; orderId++) {
+				long id = orderId;
+				futures.add(pool.submit(() -> {
+					byte[] pdf = render(renderer, id);
+					assertThat(new String(pdf, 0, 5)).isEqualTo("%PDF-");
+					bytes.addAndGet(pdf.length);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+		long pages = (long) INVOICES * pagesPerInvoice;
+		log.info("[invoice-benchmark] {} invoices ({} pages) on {} threads in {} s = {} pages/s, avg {} KB/invoice",
+				INVOICES, pages, threads, String.format("%.2f", seconds), Math.round(pages / seconds),
+				bytes.get() / INVOICES / 1024);
+
+		assertThat(pagesPerInvoice).isPositive();
+	}
+
+	private static byte[] render(InvoiceRenderer renderer, long orderId) throws Exception {
+		List<InvoiceRenderer.Line> lines = new ArrayList<>();
+		BigDecimal total = BigDecimal.ZERO;
+		for (int i = 1; i <= LINES_PER_INVOICE; i++) {
+			BigDecimal unitPrice = BigDecimal.valueOf(25_000L * i);
+			lines.add(new InvoiceRenderer.Line("Picnic basket set #" + i, i % 3 + 1, unitPrice));
+			total = total.add(unitPrice.multiply(BigDecimal.valueOf(i % 3 + 1)));
+		}
+
+		InvoiceRenderer.InvoiceData data = new InvoiceRenderer.InvoiceData(
+				orderId,
+				LocalDateTime.of(2025, 1, 15, 10, 30),
+				"SINGLE",
+				"Customer " + orderId,
+				"customer" + orderId + "@example.com",
+				null,
+				total,
+				"VNPAY",
+				"SUCCESS",
+				LocalDateTime.of(2025, 1, 15, 10, 35),
+				lines);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+		renderer.render(data, out);
+		return out.toByteArray();
+	}
+}
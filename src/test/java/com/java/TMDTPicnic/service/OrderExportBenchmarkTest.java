@@ -0,0 +1,97 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.repository.OrderRepositoryCustom.OrderExportRow;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đo tốc độ (dòng/giây) và heap đỉnh khi ghi file xuất đơn hàng.
+ * Dòng giả lập được sinh tại chỗ (giống con trỏ JDBC đọc từng dòng) và ghi vào stream bỏ đi,
+ * nên heap đỉnh (đo sau GC) chỉ phản ánh phần writer giữ lại. Số dòng chỉnh bằng -Dexport.benchmark.rows=...
+ * Heap đo qua System.gc() không ổn định giữa các JVM/GC nên chỉ ghi log; muốn chặn ngưỡng thì truyền
+ * -Dexport.benchmark.max-heap-growth-mb=...
+ */
+@Tag("benchmark")
+@Slf4j
+class OrderExportBenchmarkTest {
+
+	private static final int ROWS = Integer.getInteger("export.benchmark.rows", 300_000);
+	private static final int SAMPLE_EVERY = 50_000;
+	private static final Long MAX_HEAP_GROWTH_MB = Long.getLong("export.benchmark.max-heap-growth-mb");
+
+	@ParameterizedTest
+	@EnumSource(OrderExportService.Format.class)
+	void exportKeepsHeapFlat(OrderExportService.Format format) throws Exception {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long baseline = runtime.totalMemory() - runtime.freeMemory();
+		long peak = baseline;
+
+		CountingOutputStream out = new CountingOutputStream();
+		LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 0, 0);
+		long started = System.nanoTime();
+
+		try (OrderExportService.RowWriter writer = OrderExportService.openWriter(format, out)) {
+			for (int i = 0; i < ROWS; i++) {
+				long orderId = i / 3 + 1;
+				writer.write(new OrderExportRow(
+						orderId,
+						createdAt.plusSeconds(orderId),
+						"COMPLETED",
+						i % 2 == 0 ? "SINGLE" : "GROUP",
+						orderId % 1000,
+						"user" + (orderId % 1000) + "@example.com",
+						BigDecimal.valueOf(150_000 + orderId % 100_000),
+						i % 10 == 0 ? "SALE10" : null,
+						"VNPAY",
+						"SUCCESS",
+						(long) (i % 500),
+						"Giỏ picnic, size \"L\" #" + (i % 500),
+						1 + i % 5,
+						BigDecimal.valueOf(50_000)));
+
+				if (i % SAMPLE_EVERY == 0) {
+					// Đo phần heap còn sống sau GC, rác chưa thu gom không tính
+					System.gc();
+					peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+				}
+			}
+			writer.finish();
+			assertThat(writer.rowCount()).isEqualTo(ROWS);
+		}
+
+		double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+		long growth = peak - baseline;
+		log.info("[export-benchmark] {}: {} rows in {} s = {} rows/s, {} MB written, peak heap +{} MB",
+				format, ROWS, String.format("%.2f", seconds), Math.round(ROWS / seconds),
+				out.count / (1024 * 1024), growth / (1024 * 1024));
+
+		assertThat(out.count).isPositive();
+		if (MAX_HEAP_GROWTH_MB != null) {
+			assertThat(growth).isLessThan(MAX_HEAP_GROWTH_MB * 1024 * 1024);
+		}
+	}
+
+	private static final class CountingOutputStream extends OutputStream {
+
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
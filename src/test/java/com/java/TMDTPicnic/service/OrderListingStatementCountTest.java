@@ -0,0 +1,144 @@
+package com.java.TMDTPicnic.service;
+
+import com.java.TMDTPicnic.dto.response.OrderSummaryResponse;
+import com.java.TMDTPicnic.entity.Order;
+import com.java.TMDTPicnic.entity.OrderItem;
+import com.java.TMDTPicnic.entity.Payment;
+import com.java.TMDTPicnic.entity.Product;
+import com.java.TMDTPicnic.entity.ProductImage;
+import com.java.TMDTPicnic.enums.OrderStatus;
+import com.java.TMDTPicnic.enums.PaymentStatus;
+import com.java.TMDTPicnic.repository.OrderItemRepository;
+import com.java.TMDTPicnic.repository.OrderRepository;
+import com.java.TMDTPicnic.repository.PaymentRepository;
+import com.java.TMDTPicnic.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Thống kê Hibernate là toàn cục: giãn chu kỳ quét outbox và callback để các câu lệnh nền không lọt vào số đếm
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"app.order-events.poll-interval-ms=3600000",
+		"app.payment-callback.retry-interval-ms=3600000"
+})
+class OrderListingStatementCountTest {
+
+	private static final String ORDER_TYPE = "STMT_COUNT_TEST";
+	private static final int ORDERS = 25;
+	private static final int PAGE_SIZE = 10;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private PaymentRepository paymentRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Product product;
+	private final List<Order> orders = new ArrayList<>();
+
+	@BeforeEach
+	void createOrders() {
+		Product newProduct = Product.builder()
+				.name("stmt-count")
+				.slug("stmt-count-" + System.nanoTime())
+				.price(BigDecimal.TEN)
+				.stockQuantity(100)
+				.soldQuantity(0)
+				.isActive(true)
+				.createdAt(LocalDateTime.now())
+				.images(new ArrayList<>())
+				.build();
+		newProduct.getImages().add(ProductImage.builder().url("https://img/first.png").product(newProduct).build());
+		product = productRepository.save(newProduct);
+
+		LocalDateTime base = LocalDateTime.now();
+		for (int i = 0; i < ORDERS; i++) {
+			Order order = orderRepository.save(Order.builder()
+					.totalAmount(BigDecimal.valueOf(20))
+					.status(OrderStatus.PAID)
+					.orderType(ORDER_TYPE)
+					.createdAt(base.minusMinutes(i))
+					.build());
+			orderItemRepository.save(OrderItem.builder().order(order).product(product).qty(2).unitPrice(BigDecimal.TEN).build());
+			paymentRepository.save(Payment.builder().order(order).amount(BigDecimal.valueOf(20))
+					.paymentMethod("COD").status(PaymentStatus.SUCCESS).build());
+			orders.add(order);
+		}
+	}
+
+	@AfterEach
+	void deleteOrders() {
+		for (Order order : orders) {
+			paymentRepository.findByOrderId(order.getId()).ifPresent(paymentRepository::delete);
+			orderItemRepository.deleteAll(orderItemRepository.findByOrder(order));
+			orderRepository.delete(order);
+		}
+		productRepository.delete(product);
+	}
+
+	@Test
+	void pageWithCountUsesFourStatements() {
+		Statistics statistics = statistics();
+
+		Slice<OrderSummaryResponse> page = orderService.getAllOrders(
+				PageRequest.of(1, PAGE_SIZE, Sort.by("createdAt").descending()), null, ORDER_TYPE, true);
+
+		// trang đơn + count + thumbnail IN + payment IN
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+		assertThat(page).isInstanceOf(Page.class);
+		assertThat(((Page<OrderSummaryResponse>) page).getTotalElements()).isEqualTo(ORDERS);
+		assertThat(page.getContent()).hasSize(PAGE_SIZE)
+				.allSatisfy(summary -> {
+					assertThat(summary.getFirstProductThumbnail()).isEqualTo("https://img/first.png");
+					assertThat(summary.getPaymentMethod()).isEqualTo("COD");
+				});
+	}
+
+	@Test
+	void pageWithoutCountUsesThreeStatements() {
+		Statistics statistics = statistics();
+
+		Slice<OrderSummaryResponse> page = orderService.getAllOrders(
+				PageRequest.of(2, PAGE_SIZE, Sort.by("createdAt").descending()), null, ORDER_TYPE, false);
+
+		// trang đơn (lấy dư 1 dòng) + thumbnail IN + payment IN
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(page.getContent()).hasSize(ORDERS - 2 * PAGE_SIZE);
+		assertThat(page.hasNext()).isFalse();
+	}
+
+	private Statistics statistics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+}